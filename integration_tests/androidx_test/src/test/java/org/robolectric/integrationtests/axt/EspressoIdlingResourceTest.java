@@ -2,6 +2,8 @@ package org.robolectric.integrationtests.axt;
 
 import static androidx.test.espresso.Espresso.onIdle;
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.robolectric.Shadows.shadowOf;
 
 import android.os.Handler;
 import android.os.HandlerThread;
@@ -179,6 +181,32 @@ public final class EspressoIdlingResourceTest {
     }
   }
 
+  @Test
+  public void onIdle_pausedLooperTaskThrows_rethrowsFailure() throws Exception {
+    HandlerThread handlerThread = new HandlerThread("Test");
+    try {
+      handlerThread.start();
+      Looper looper = handlerThread.getLooper();
+      shadowOf(looper).pause();
+      IllegalStateException failure = new IllegalStateException("looper task failed");
+      new Handler(looper)
+          .post(
+              () -> {
+                throw failure;
+              });
+      idlingRegistry.registerLooperAsIdlingResource(looper);
+
+      // Espresso may wrap the failure, so look for it in the cause chain.
+      Throwable thrown = assertThrows(RuntimeException.class, () -> onIdle());
+      while (thrown != null && thrown != failure) {
+        thrown = thrown.getCause();
+      }
+      assertThat(thrown).isSameInstanceAs(failure);
+    } finally {
+      handlerThread.quit();
+    }
+  }
+
   /**
    * @noinspection NewClassNamingConvention
    */
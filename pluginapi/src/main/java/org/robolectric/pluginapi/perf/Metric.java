@@ -64,6 +64,18 @@ public class Metric {
     this.count++;
   }
 
+  /**
+   * Adds {@code delta} to the count, e.g. for work that is recorded in batches.
+   *
+   * @throws IllegalArgumentException if {@code delta} is negative; counts never decrease
+   */
+  public void incrementCount(int delta) {
+    if (delta < 0) {
+      throw new IllegalArgumentException("negative delta " + delta + " for " + name);
+    }
+    this.count += delta;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -1,7 +1,14 @@
 package org.robolectric.res.android;
 
 import com.google.auto.value.AutoValue;
-import java.util.HashMap;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.Ints;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.WeakHashMap;
+import org.robolectric.util.PerfStatsCollector;
 
 /**
  * A global cache for ApkAssets (framework and app resources). This cache is shared between
@@ -12,22 +19,131 @@ import java.util.HashMap;
  * growing in size, and an increasing number of sandbox parameters, the memory usage did not scale
  * well as test suites increased in size.
  *
- * <p>Currently the items in this cache are not made available for GC. However, it would definitely
- * be possible to have a per-sdk-level reference counting mechanism where an item could be freed if
- * all sandboxes referencing that item are collected.
+ * <p>Each entry records the sandboxes (identified by their class loader) that are using it. An
+ * entry is referenced until all of those sandboxes have been released with {@link
+ * #release(ClassLoader)} or garbage collected. Once the cache exceeds its budget, the least
+ * recently used unreferenced entries are evicted and their ApkAssets are unregistered, so they can
+ * be GC'd. The budget defaults to 256 MB and can be set with the {@code
+ * robolectric.apkAssetsCache.budgetMb} system property. Entries that are still referenced are never
+ * evicted, even if the cache is over budget.
+ *
+ * <p>The size of an entry is the heap retained by its ApkAssets, as estimated by {@link
+ * CppApkAssets#RetainedSizeBytes()}. It grows as the shared bag and XML tree caches of the
+ * ApkAssets fill, so sizes are estimated again each time the budget is checked.
+ *
+ * <p>Hits, misses, evictions, and the bytes loaded and evicted are recorded with {@link
+ * PerfStatsCollector}.
  */
 @SuppressWarnings("AndroidJdkLibsChecker")
 public final class ApkAssetsCache {
 
-  private static final HashMap<Key, Long> cachedApkAssetsPtrs = new HashMap<>();
+  private static final long DEFAULT_BUDGET_MB = 256;
+
+  private static long budgetBytes =
+      Long.getLong("robolectric.apkAssetsCache.budgetMb", DEFAULT_BUDGET_MB) * 1024 * 1024;
+
+  // In access order, so iteration starts at the least recently used entry.
+  private static final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Adds the ApkAssets registered as {@code ptr} to the cache, referenced by the sandbox that owns
+   * {@code sandboxClassLoader}, and returns the pointer the sandbox should use.
+   *
+   * <p>If another sandbox cached the same ApkAssets after this one missed, the existing entry is
+   * kept and its pointer is returned instead, and {@code ptr} is unregistered.
+   */
+  public static synchronized long put(
+      String path, boolean system, int apiLevel, long ptr, ClassLoader sandboxClassLoader) {
+    PerfStatsCollector perfStats = PerfStatsCollector.getInstance();
+    perfStats.incrementCount("ApkAssetsCache.miss");
+    Key key = Key.newInstance(path, system, system ? apiLevel : 0);
+    Entry existing = entries.get(key);
+    if (existing != null) {
+      existing.owners.add(sandboxClassLoader);
+      if (existing.ptr != ptr) {
+        Registries.NATIVE_APK_ASSETS_REGISTRY.unregister(ptr);
+      }
+      return existing.ptr;
+    }
+    Entry entry = new Entry(ptr);
+    entry.owners.add(sandboxClassLoader);
+    entries.put(key, entry);
+    perfStats.incrementCount("ApkAssetsCache.loadedBytes", Ints.saturatedCast(estimateSize(ptr)));
+    evictUnreferenced();
+    return ptr;
+  }
+
+  /**
+   * Returns the cached ApkAssets pointer, or -1 if there is none. A hit also records {@code
+   * sandboxClassLoader} as a reference to the entry.
+   */
+  public static synchronized long get(
+      String path, boolean system, int apiLevel, ClassLoader sandboxClassLoader) {
+    Entry entry = entries.get(Key.newInstance(path, system, system ? apiLevel : 0));
+    if (entry == null) {
+      return -1L;
+    }
+    entry.owners.add(sandboxClassLoader);
+    PerfStatsCollector.getInstance().incrementCount("ApkAssetsCache.hit");
+    return entry.ptr;
+  }
 
-  public static void put(String path, boolean system, int apiLevel, long ptr) {
-    cachedApkAssetsPtrs.put(Key.newInstance(path, system, system ? apiLevel : 0), ptr);
+  /**
+   * Drops all references held by the sandbox that owns {@code sandboxClassLoader}, and evicts any
+   * entries that are no longer needed to stay within the budget.
+   */
+  public static synchronized void release(ClassLoader sandboxClassLoader) {
+    for (Entry entry : entries.values()) {
+      entry.owners.remove(sandboxClassLoader);
+    }
+    evictUnreferenced();
   }
 
-  public static long get(String path, boolean system, int apiLevel) {
-    return cachedApkAssetsPtrs.getOrDefault(
-        Key.newInstance(path, system, system ? apiLevel : 0), -1L);
+  /** Returns the estimated number of bytes held by cached ApkAssets. */
+  public static synchronized long sizeBytes() {
+    long totalBytes = 0;
+    for (Entry entry : entries.values()) {
+      totalBytes += estimateSize(entry.ptr);
+    }
+    return totalBytes;
+  }
+
+  @VisibleForTesting
+  static synchronized void setBudgetBytes(long budgetBytes) {
+    ApkAssetsCache.budgetBytes = budgetBytes;
+    evictUnreferenced();
+  }
+
+  private static void evictUnreferenced() {
+    long totalBytes = sizeBytes();
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (totalBytes > budgetBytes && iterator.hasNext()) {
+      Entry entry = iterator.next();
+      if (entry.owners.isEmpty()) {
+        long sizeBytes = estimateSize(entry.ptr);
+        iterator.remove();
+        totalBytes -= sizeBytes;
+        Registries.NATIVE_APK_ASSETS_REGISTRY.unregister(entry.ptr);
+        PerfStatsCollector perfStats = PerfStatsCollector.getInstance();
+        perfStats.incrementCount("ApkAssetsCache.evict");
+        perfStats.incrementCount("ApkAssetsCache.evictedBytes", Ints.saturatedCast(sizeBytes));
+      }
+    }
+  }
+
+  private static long estimateSize(long ptr) {
+    CppApkAssets apkAssets = Registries.NATIVE_APK_ASSETS_REGISTRY.peekNativeObject(ptr);
+    return apkAssets == null ? 0 : apkAssets.RetainedSizeBytes();
+  }
+
+  private static final class Entry {
+    final long ptr;
+    // Weak, so that sandboxes which are never explicitly released don't pin entries forever.
+    final Set<ClassLoader> owners = Collections.newSetFromMap(new WeakHashMap<>());
+
+    Entry(long ptr) {
+      this.ptr = ptr;
+    }
   }
 
   /** The cache key for this cache. */
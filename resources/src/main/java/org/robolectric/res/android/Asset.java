@@ -12,6 +12,8 @@ import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Locale;
@@ -118,6 +120,17 @@ public abstract class Asset {
    */
   public abstract byte[] getBuffer(boolean wordAligned);
 
+  /**
+   * Returns the entire contents of the asset as a little-endian {@link ByteBuffer}.
+   *
+   * <p>Non-Android framework method. Uncompressed assets in an APK are served from a read-only
+   * memory map of the archive rather than being copied onto the heap; all others wrap {@link
+   * #getBuffer(boolean)}.
+   */
+  public ByteBuffer getByteBuffer() {
+    return ByteBuffer.wrap(getBuffer(true /*wordAligned*/)).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
   /*
    * Get the total amount of data that can be read.
    */
@@ -729,7 +742,8 @@ public abstract class Asset {
       mLength = dataMap.getDataLength();
       assert (mOffset == 0);
 
-      mBuf = dataMap.getDataPtr();
+      // The data is read from the map lazily, so callers of getByteBuffer() can avoid copying an
+      // uncompressed entry onto the heap.
 
       return NO_ERROR;
     }
@@ -867,6 +881,17 @@ public abstract class Asset {
      * level and we'd be using a different object, but we didn't, so we
      * deal with it here.
      */
+    @Override
+    public ByteBuffer getByteBuffer() {
+      if (mBuf == null && mMap != null) {
+        ByteBuffer mapped = mMap.getMappedData();
+        if (mapped != null) {
+          return mapped;
+        }
+      }
+      return super.getByteBuffer();
+    }
+
     @Override
     public final byte[] getBuffer(boolean wordAligned) {
       /* subsequent requests just use what we did previously */
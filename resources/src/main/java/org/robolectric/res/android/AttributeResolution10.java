@@ -99,6 +99,48 @@ public class AttributeResolution10 {
       int attrs_length,
       int[] out_values,
       int[] out_indices) {
+    // Java-only: reuse the result of an identical call against the same theme, if there was one.
+    ThemeAttributeCache.Key key =
+        new ThemeAttributeCache.Key(
+            false,
+            def_style_attr,
+            def_style_res,
+            src_values,
+            src_values_length,
+            null,
+            attrs,
+            attrs_length);
+    ThemeAttributeCache.Result result = theme.GetCachedAttributes(key);
+    if (result == null) {
+      int[] values = new int[attrs_length * STYLE_NUM_ENTRIES];
+      int[] indices = new int[attrs_length + 1];
+      ResolveAttrsUncached(
+          theme,
+          def_style_attr,
+          def_style_res,
+          src_values,
+          src_values_length,
+          attrs,
+          attrs_length,
+          values,
+          indices);
+      result = theme.PutCachedAttributes(key, values, indices);
+    }
+    // ResolveAttrs() doesn't report the source style.
+    result.copyTo(out_values, out_indices, STYLE_SOURCE_STYLE_RESOURCE_ID);
+    return true;
+  }
+
+  private static void ResolveAttrsUncached(
+      Theme theme,
+      int def_style_attr,
+      int def_style_res,
+      int[] src_values,
+      int src_values_length,
+      int[] attrs,
+      int attrs_length,
+      int[] out_values,
+      int[] out_indices) {
     if (kDebugStyles) {
       ALOGI(
           "APPLY STYLE: theme=0x%s defStyleAttr=0x%x defStyleRes=0x%x",
@@ -243,7 +285,6 @@ public class AttributeResolution10 {
     if (out_indices != null) {
       out_indices[0] = indicesIdx;
     }
-    return true;
   }
 
   public static void ApplyStyle(
@@ -255,6 +296,78 @@ public class AttributeResolution10 {
       int attrs_length,
       int[] out_values,
       int[] out_indices) {
+    // Java-only: reuse the result of an identical call against the same theme, if there was one.
+    // The XML element only contributes the values of its style attribute and of the requested
+    // attributes, so elements that agree on those share a result, e.g. the same element of each
+    // inflated list item.
+    ThemeAttributeCache.Key key =
+        new ThemeAttributeCache.Key(
+            true,
+            def_style_attr,
+            def_style_res_id,
+            null,
+            0,
+            xml_parser != null ? ReadXmlValues(xml_parser, attrs, attrs_length) : null,
+            attrs,
+            attrs_length);
+    ThemeAttributeCache.Result result = theme.GetCachedAttributes(key);
+    if (result == null) {
+      int[] values = new int[attrs_length * STYLE_NUM_ENTRIES];
+      int[] indices = new int[attrs_length + 1];
+      ApplyStyleUncached(
+          theme,
+          xml_parser,
+          def_style_attr,
+          def_style_res_id,
+          attrs,
+          attrs_length,
+          values,
+          indices);
+      result = theme.PutCachedAttributes(key, values, indices);
+    }
+    result.copyTo(out_values, out_indices, STYLE_NUM_ENTRIES);
+  }
+
+  /**
+   * Java-only: returns everything ApplyStyle() reads from the current element of {@code
+   * xml_parser}, i.e. the type and data of its style attribute followed by those of each requested
+   * attribute, with a type of -1 for the ones it doesn't have.
+   */
+  private static int[] ReadXmlValues(ResXMLParser xml_parser, int[] attrs, int attrs_length) {
+    int[] xml_values = new int[(attrs_length + 1) * 2];
+    final Ref<Res_value> value = new Ref<>(Res_value.NULL_VALUE);
+    int idx = xml_parser.indexOfStyle();
+    if (idx >= 0 && xml_parser.getAttributeValue(idx, value) >= 0) {
+      xml_values[0] = value.get().dataType;
+      xml_values[1] = value.get().data;
+    } else {
+      xml_values[0] = -1;
+    }
+    XmlAttributeFinder xml_attr_finder = new XmlAttributeFinder(xml_parser);
+    for (int ii = 0; ii < attrs_length; ii++) {
+      int xml_attr_idx = xml_attr_finder.Find(attrs[ii]);
+      int offset = (ii + 1) * 2;
+      if (xml_attr_idx != -1) {
+        value.set(Res_value.NULL_VALUE);
+        xml_parser.getAttributeValue(xml_attr_idx, value);
+        xml_values[offset] = value.get().dataType;
+        xml_values[offset + 1] = value.get().data;
+      } else {
+        xml_values[offset] = -1;
+      }
+    }
+    return xml_values;
+  }
+
+  private static void ApplyStyleUncached(
+      Theme theme,
+      ResXMLParser xml_parser,
+      int def_style_attr,
+      int def_style_res_id,
+      int[] attrs,
+      int attrs_length,
+      int[] out_values,
+      int[] out_indices) {
     if (kDebugStyles) {
       ALOGI(
           "APPLY STYLE: theme=%s defStyleAttr=0x%x defStyleRes=0x%x xml=%s",
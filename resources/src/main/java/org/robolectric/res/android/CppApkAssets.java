@@ -19,10 +19,15 @@ import java.nio.ByteOrder;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipEntry;
 import org.robolectric.res.android.Asset.AccessMode;
 import org.robolectric.res.android.CppAssetManager.FileType;
+import org.robolectric.res.android.CppAssetManager2.SharedBag;
 import org.robolectric.res.android.Idmap.LoadedIdmap;
+import org.robolectric.res.android.LoadedArsc.LoadedPackage;
+import org.robolectric.res.android.LoadedArsc.TypeSpec;
 import org.robolectric.res.android.ZipFileRO.ZipEntryRO;
 
 //
@@ -64,7 +69,7 @@ public class CppApkAssets {
   public CppApkAssets(ZipArchiveHandle zip_handle_, String path_) {
     this.zip_handle_ = zip_handle_;
     this.path_ = path_;
-    this.zipFileRO = new ZipFileRO(zip_handle_, zip_handle_.zipFile.getName());
+    this.zipFileRO = new ZipFileRO(zip_handle_, zip_handle_.fileName);
   }
 
   public String GetPath() {
@@ -99,6 +104,22 @@ public class CppApkAssets {
   Asset idmap_asset_;
   private LoadedArsc loaded_arsc_;
 
+  // Java-only: framework bags resolved from this ApkAssets by any CppAssetManager2, keyed by
+  // resource ID. See CppAssetManager2.SharedBag.
+  final ConcurrentHashMap<Integer, SharedBag[]> shared_bags_ = new ConcurrentHashMap<>();
+
+  // Java-only: compiled XML files parsed from this ApkAssets by any CppAssetManager2, keyed by
+  // path. Each one is only handed out as a view, see CppAssetManager2.OpenCachedXmlTree().
+  final ConcurrentHashMap<String, ResXMLTree> xml_trees_ = new ConcurrentHashMap<>();
+
+  // Java-only: estimated heap bytes held by shared_bags_ and xml_trees_. Entries are never removed
+  // from those caches, so this only grows. See RetainedSizeBytes().
+  final AtomicLong cached_bytes_ = new AtomicLong();
+
+  // Java-only: rough heap cost of one object parsed from or cached for this ApkAssets, used by
+  // RetainedSizeBytes().
+  static final int kObjectBytes = 64;
+
   // };
   //
   // }  // namespace android
@@ -277,10 +298,11 @@ public class CppApkAssets {
     //       reinterpret_cast<const char*>(loaded_apk.resources_asset_.getBuffer(true
     // /*wordAligned*/)),
     //       loaded_apk.resources_asset_.getLength());
+    // An uncompressed resources.arsc is parsed in place from a read-only mapping of the APK rather
+    // than being copied onto the heap.
     StringPiece data =
         new StringPiece(
-            ByteBuffer.wrap(loaded_apk.resources_asset_.getBuffer(true /*wordAligned*/))
-                .order(ByteOrder.LITTLE_ENDIAN),
+            loaded_apk.resources_asset_.getByteBuffer(),
             0 /*(int) loaded_apk.resources_asset_.getLength()*/);
     loaded_apk.loaded_arsc_ = LoadedArsc.Load(data, loaded_idmap, system, load_as_shared_library);
 
@@ -364,7 +386,7 @@ public class CppApkAssets {
     }
 
     String prefix = root_path_full;
-    Enumeration<? extends ZipEntry> entries = zip_handle_.zipFile.entries();
+    Enumeration<? extends ZipEntry> entries = zip_handle_.entries();
     // if (StartIteration(zip_handle_.get(), &cookie, &prefix, null) != 0) {
     //   return false;
     // }
@@ -418,5 +440,24 @@ public class CppApkAssets {
     // return result == -1;
     return true;
   }
+
+  // Java-only: returns an estimate of the heap retained by this ApkAssets. This counts
+  // resources.arsc only if it was read onto the heap rather than mapped, the type structures parsed
+  // from it, and the shared bag and XML tree caches, which grow as the ApkAssets is used. Softly
+  // referenced data, such as decoded string caches, is not counted.
+  public long RetainedSizeBytes() {
+    long size = cached_bytes_.get();
+    if (resources_asset_ != null && !resources_asset_.getByteBuffer().isDirect()) {
+      size += resources_asset_.getLength();
+    }
+    if (loaded_arsc_ != null) {
+      for (LoadedPackage loaded_package : loaded_arsc_.GetPackages()) {
+        for (TypeSpec type_spec : loaded_package.type_specs_.values()) {
+          size += (long) kObjectBytes * (1 + type_spec.type_count);
+        }
+      }
+    }
+    return size;
+  }
   //
 } // namespace android
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import org.robolectric.res.Fs;
 import org.robolectric.res.android.AssetDir.FileInfo;
 import org.robolectric.res.android.CppApkAssets.ForEachFileCallback;
@@ -118,6 +119,25 @@ public class CppAssetManager2 {
     public Entry[] entries;
   }
 
+  // Java-only: a framework bag that can be reused by every AssetManager (in any sandbox) that
+  // loads the same framework ApkAssets at the same cookie. Like the entries of cached_bags_, it
+  // stays valid for any configuration that only differs from `config` in axes it doesn't vary with.
+  // Bags are never mutated once resolved, so they can be shared without copying.
+  static final class SharedBag {
+    // The most variants to keep per resource ID, e.g. for tests that switch orientation or locale.
+    static final int kMaxVariants = 8;
+
+    final ResTable_config config;
+    final int cookie;
+    final ResolvedBag bag;
+
+    SharedBag(ResTable_config config, int cookie, ResolvedBag bag) {
+      this.config = config;
+      this.cookie = cookie;
+      this.bag = bag;
+    }
+  }
+
   // AssetManager2 is the main entry point for accessing assets and resources.
   // AssetManager2 provides caching of resources retrieved via the underlying ApkAssets.
   //  class AssetManager2 : public .AAssetManager {
@@ -186,6 +206,27 @@ public class CppAssetManager2 {
 
     // A library reference table that contains build-package ID to runtime-package ID mappings.
     DynamicRefTable dynamic_ref_table;
+
+    // Java-only: FindEntry() results for the current configuration, indexed by type index and
+    // then entry index. The selected entry only changes when the filtered configurations do, so
+    // these are discarded by RebuildFilterList().
+    FindEntryResult[][] resolved_entries_ = new FindEntryResult[256][];
+
+    FindEntryResult GetResolvedEntry(int type_idx, int entry_idx) {
+      FindEntryResult[] entries = resolved_entries_[type_idx & 0xff];
+      return entries != null && entry_idx < entries.length ? entries[entry_idx] : null;
+    }
+
+    void PutResolvedEntry(int type_idx, int entry_idx, FindEntryResult result) {
+      FindEntryResult[] entries = resolved_entries_[type_idx & 0xff];
+      if (entries == null || entry_idx >= entries.length) {
+        int length = Math.max(entry_idx + 1, entries == null ? 16 : entries.length * 2);
+        entries =
+            entries == null ? new FindEntryResult[length] : Arrays.copyOf(entries, length);
+        resolved_entries_[type_idx & 0xff] = entries;
+      }
+      entries[entry_idx] = result;
+    }
   }
 
   // DynamicRefTables for shared library package resolution.
@@ -208,6 +249,10 @@ public class CppAssetManager2 {
   //  private std.unordered_map<int, util.unique_cptr<ResolvedBag>> cached_bags_;
   private final Map<Integer, ResolvedBag> cached_bags_ = new HashMap<>();
 
+  // Java-only: incremented whenever the configuration or ApkAssets change, so that caches held
+  // outside of this AssetManager (see ThemeAttributeCache) can tell when they are stale.
+  private int generation_ = 0;
+
   //  };
 
   // final ResolvedBag.Entry* begin(final ResolvedBag* bag) { return bag.entries; }
@@ -260,6 +305,9 @@ public class CppAssetManager2 {
     // The string pool reference to the entry's name. This uses a different string pool than
     // the global string pool, but this is hidden from the caller.
     StringPoolRef entry_string_ref;
+
+    // Java-only: the cookie FindEntry() returned with this result, so it can be memoized.
+    ApkAssetsCookie cookie;
   }
 
   //  AssetManager2() { memset(&configuration_, 0, sizeof(configuration_)); }
@@ -589,6 +637,45 @@ public class CppAssetManager2 {
     return apk_assets_.get(cookie.intValue()).Open(filename, mode);
   }
 
+  // Java-only: returns a new ResXMLTree for the compiled XML file at `filename` in the ApkAssets at
+  // `cookie`, if the file has been parsed before by any AssetManager using those ApkAssets.
+  // The tree shares the parsed data, so this skips opening, inflating and parsing the file again.
+  // Returns null if the file hasn't been parsed yet; see CacheXmlTree().
+  public ResXMLTree OpenCachedXmlTree(final String filename, ApkAssetsCookie cookie) {
+    if (cookie.intValue() < 0 || cookie.intValue() >= apk_assets_.size()) {
+      return null;
+    }
+    ResXMLTree parsed = apk_assets_.get(cookie.intValue()).xml_trees_.get(filename);
+    if (parsed == null) {
+      return null;
+    }
+    PerfStatsCollector perfStats = PerfStatsCollector.getInstance();
+    if (perfStats.isEnabled()) {
+      perfStats.incrementCount("CppAssetManager2.xmlTreeHit");
+    }
+    return new ResXMLTree(GetDynamicRefTableForCookie(cookie), parsed);
+  }
+
+  // Java-only: makes the successfully parsed `tree`, opened from `filename` in the ApkAssets at
+  // `cookie`, available to later calls to OpenCachedXmlTree().
+  public void CacheXmlTree(final String filename, ApkAssetsCookie cookie, ResXMLTree tree) {
+    if (cookie.intValue() < 0
+        || cookie.intValue() >= apk_assets_.size()
+        || tree.getError() != NO_ERROR) {
+      return;
+    }
+    PerfStatsCollector perfStats = PerfStatsCollector.getInstance();
+    if (perfStats.isEnabled()) {
+      perfStats.incrementCount("CppAssetManager2.xmlTreeMiss");
+    }
+    // The cached tree has no dynamic reference table of its own, so that it doesn't hold on to
+    // this AssetManager's state; views are given the right one when they are opened.
+    CppApkAssets apk_assets = apk_assets_.get(cookie.intValue());
+    if (apk_assets.xml_trees_.putIfAbsent(filename, new ResXMLTree(null, tree)) == null) {
+      apk_assets.cached_bytes_.addAndGet(CppApkAssets.kObjectBytes + tree.mSize);
+    }
+  }
+
   // template <typename Func>
   public interface PackageFunc {
     void apply(String package_name, byte package_id);
@@ -629,7 +716,8 @@ public class CppAssetManager2 {
     // Select our configuration or generate a density override configuration.
     ResTable_config desired_config = configuration_;
     if (density_override != 0 && density_override != configuration_.density) {
-      density_override_config = configuration_;
+      // Copy, so that the override neither changes configuration_ nor takes the fast path below.
+      density_override_config = new ResTable_config(configuration_);
       density_override_config.density = density_override;
       desired_config = density_override_config;
     }
@@ -652,6 +740,18 @@ public class CppAssetManager2 {
     final PackageGroup package_group = package_groups_.get(package_idx);
     final int package_count = package_group.packages_.size();
 
+    // If desired_config is the same as the set configuration, then we can use our filtered list
+    // and we don't need to match the configurations, since they already matched.
+    boolean use_fast_path = desired_config == configuration_;
+
+    if (use_fast_path) {
+      FindEntryResult resolved = package_group.GetResolvedEntry(type_idx, entry_idx);
+      if (resolved != null) {
+        out_entry.set(resolved);
+        return resolved.cookie;
+      }
+    }
+
     ApkAssetsCookie best_cookie = K_INVALID_COOKIE;
     LoadedPackage best_package = null;
     ResTable_type best_type = null;
@@ -660,10 +760,6 @@ public class CppAssetManager2 {
     int best_offset = 0;
     int type_flags = 0;
 
-    // If desired_config is the same as the set configuration, then we can use our filtered list
-    // and we don't need to match the configurations, since they already matched.
-    boolean use_fast_path = desired_config == configuration_;
-
     // Search the entry in reverse order. This favors the newly added package in case neither
     // configuration is considered "better than" the other.
     for (int pi = package_count - 1; pi >= 0; pi--) {
@@ -769,6 +865,10 @@ public class CppAssetManager2 {
     out_entry_.entry_string_ref =
         new StringPoolRef(best_package.GetKeyStringPool(), best_entry.getKeyIndex());
     out_entry_.dynamic_ref_table = package_group.dynamic_ref_table;
+    out_entry_.cookie = best_cookie;
+    if (use_fast_path) {
+      package_group.PutResolvedEntry(type_idx, entry_idx, out_entry_);
+    }
     out_entry.set(out_entry_);
     return best_cookie;
   }
@@ -970,6 +1070,12 @@ public class CppAssetManager2 {
       return cached_iter;
     }
 
+    ResolvedBag shared_bag = GetSharedBag(resid);
+    if (shared_bag != null) {
+      cached_bags_.put(resid, shared_bag);
+      return shared_bag;
+    }
+
     final Ref<FindEntryResult> entryRef = new Ref<>(null);
     ApkAssetsCookie cookie = FindEntry(resid, (short) 0 /* density_override */, entryRef);
     if (cookie.intValue() == kInvalidCookie) {
@@ -1053,6 +1159,7 @@ public class CppAssetManager2 {
       new_bag.entry_count = entry_count;
       ResolvedBag result = new_bag;
       cached_bags_.put(resid, new_bag);
+      PutSharedBag(resid, new_bag);
       return result;
     }
 
@@ -1204,9 +1311,80 @@ public class CppAssetManager2 {
     ResolvedBag result2 = new_bag;
     // cached_bags_[resid] = std::move(new_bag);
     cached_bags_.put(resid, new_bag);
+    PutSharedBag(resid, new_bag);
     return result2;
   }
 
+  // Java-only: returns the cookie of the ApkAssets whose shared bags can be used for `resid`, or
+  // kInvalidCookie. Only framework bags are shared, and only when no overlay or other package
+  // shares the framework's package ID, so the resolved bag depends on nothing but the framework
+  // APK and the configuration.
+  private int GetSharedBagCookie(int resid) {
+    if (get_package_id(resid) != LoadedArsc.kFrameworkPackageId) {
+      return kInvalidCookie;
+    }
+    final byte package_idx = package_ids_[LoadedArsc.kFrameworkPackageId];
+    if (package_idx == (byte) 0xff) {
+      return kInvalidCookie;
+    }
+    PackageGroup package_group = package_groups_.get(package_idx);
+    if (package_group.packages_.size() != 1) {
+      return kInvalidCookie;
+    }
+    return package_group.cookies_.get(0).intValue();
+  }
+
+  private ResolvedBag GetSharedBag(int resid) {
+    final int cookie = GetSharedBagCookie(resid);
+    if (cookie == kInvalidCookie) {
+      return null;
+    }
+    SharedBag[] variants = apk_assets_.get(cookie).shared_bags_.get(resid);
+    if (variants == null) {
+      return null;
+    }
+    for (SharedBag variant : variants) {
+      if (variant.cookie == cookie
+          && (variant.config.diff(configuration_) & variant.bag.type_spec_flags) == 0) {
+        PerfStatsCollector perfStats = PerfStatsCollector.getInstance();
+        if (perfStats.isEnabled()) {
+          perfStats.incrementCount("CppAssetManager2.sharedBagHit");
+        }
+        return variant.bag;
+      }
+    }
+    return null;
+  }
+
+  private void PutSharedBag(int resid, ResolvedBag bag) {
+    final int cookie = GetSharedBagCookie(resid);
+    if (cookie == kInvalidCookie) {
+      return;
+    }
+    CppApkAssets apk_assets = apk_assets_.get(cookie);
+    ConcurrentMap<Integer, SharedBag[]> shared_bags = apk_assets.shared_bags_;
+    SharedBag shared = new SharedBag(new ResTable_config(configuration_), cookie, bag);
+    while (true) {
+      SharedBag[] variants = shared_bags.get(resid);
+      if (variants == null) {
+        if (shared_bags.putIfAbsent(resid, new SharedBag[] {shared}) == null) {
+          break;
+        }
+      } else {
+        if (variants.length >= SharedBag.kMaxVariants) {
+          return;
+        }
+        SharedBag[] updated = Arrays.copyOf(variants, variants.length + 1);
+        updated[variants.length] = shared;
+        if (shared_bags.replace(resid, variants, updated)) {
+          break;
+        }
+      }
+    }
+    // The SharedBag and its config, the ResolvedBag, and one object per entry.
+    apk_assets.cached_bytes_.addAndGet((long) CppApkAssets.kObjectBytes * (2 + bag.entry_count));
+  }
+
   String GetResourceName(int resid) {
     ResourceName out_name = new ResourceName();
     if (GetResourceName(resid, out_name)) {
@@ -1299,11 +1477,13 @@ public class CppAssetManager2 {
   // Triggers the re-construction of lists of types that match the set configuration.
   // This should always be called when mutating the AssetManager's configuration or ApkAssets set.
   void RebuildFilterList() {
+    generation_++;
     PerfStatsCollector.getInstance()
         .measure(
             "RebuildFilterList",
             () -> {
               for (PackageGroup group : package_groups_) {
+                group.resolved_entries_ = new FindEntryResult[256][];
                 for (ConfiguredPackage impl : group.packages_) {
                   // // Destroy it.
                   // impl.filtered_configs_.~ByteBucketArray();
@@ -1386,6 +1566,18 @@ public class CppAssetManager2 {
       return type_spec_flags_;
     }
 
+    // Java-only: returns the memoized result of an AttributeResolution10 call with the inputs in
+    // `key`, or null if it hasn't been computed since this theme or its AssetManager last changed.
+    ThemeAttributeCache.Result GetCachedAttributes(ThemeAttributeCache.Key key) {
+      return attribute_cache_.get(key, version_, asset_manager_.generation_);
+    }
+
+    // Java-only: memoizes the result of an AttributeResolution10 call with the inputs in `key`.
+    ThemeAttributeCache.Result PutCachedAttributes(
+        ThemeAttributeCache.Key key, int[] values, int[] indices) {
+      return attribute_cache_.put(key, version_, asset_manager_.generation_, values, indices);
+    }
+
     // private:
     //  private DISALLOW_COPY_AND_ASSIGN(Theme);
 
@@ -1397,6 +1589,10 @@ public class CppAssetManager2 {
     //  std.array<std.unique_ptr<Package>, kPackageCount> packages_;
     private final ThemePackage[] packages_ = new ThemePackage[kPackageCount];
 
+    // Java-only: incremented by every call that changes the contents of this theme.
+    private int version_ = 0;
+    private final ThemeAttributeCache attribute_cache_ = new ThemeAttributeCache();
+
     public Theme(CppAssetManager2 cppAssetManager2) {
       asset_manager_ = cppAssetManager2;
     }
@@ -1439,6 +1635,8 @@ public class CppAssetManager2 {
         return false;
       }
 
+      version_++;
+
       // Merge the flags from this style.
       type_spec_flags_ |= bag.type_spec_flags;
 
@@ -1624,6 +1822,7 @@ public class CppAssetManager2 {
 
     //  void Clear();
     public void Clear() {
+      version_++;
       type_spec_flags_ = 0;
       for (int i = 0; i < packages_.length; i++) {
         //        package_.reset();
@@ -1639,6 +1838,7 @@ public class CppAssetManager2 {
         return true;
       }
 
+      version_++;
       type_spec_flags_ = o.type_spec_flags_;
 
       boolean copy_only_system = asset_manager_ != o.asset_manager_;
@@ -1,46 +1,18 @@
 package org.robolectric.res.android;
 
-import static java.nio.charset.StandardCharsets.ISO_8859_1;
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.robolectric.res.android.Asset.toIntExact;
 import static org.robolectric.res.android.Util.ALOGV;
 
-import com.google.common.collect.ImmutableMap;
-import com.google.common.primitives.Ints;
-import com.google.common.primitives.Longs;
-import com.google.common.primitives.Shorts;
-import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
-import java.nio.charset.Charset;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
 
 public class FileMap {
 
-  /** ZIP archive central directory end header signature. */
-  private static final int ENDSIG = 0x6054b50;
-
-  private static final int EOCD_SIZE = 22;
-
-  private static final int ZIP64_EOCD_SIZE = 56;
-
-  private static final int ZIP64_EOCD_LOCATOR_SIZE = 20;
-
-  /** ZIP64 archive central directory end header signature. */
-  private static final int ENDSIG64 = 0x6064b50;
-
-  private static final int MAX_COMMENT_SIZE = 64 * 1024; // 64k
-
-  /** the maximum size of the end of central directory sections in bytes */
-  private static final int MAXIMUM_ZIP_EOCD_SIZE =
-      MAX_COMMENT_SIZE + EOCD_SIZE + ZIP64_EOCD_SIZE + ZIP64_EOCD_LOCATOR_SIZE;
-
-  private ZipFile zipFile;
+  private ZipArchiveHandle zipArchive;
   private ZipEntry zipEntry;
 
   @SuppressWarnings("unused")
@@ -155,13 +127,13 @@ public class FileMap {
 
   boolean createFromZip(
       String origFileName,
-      ZipFile zipFile,
+      ZipArchiveHandle zipArchive,
       ZipEntry entry,
       long offset,
       int length,
       boolean readOnly) {
     isFromZip = true;
-    this.zipFile = zipFile;
+    this.zipArchive = zipArchive;
     this.zipEntry = entry;
 
     assert (fd >= 0);
@@ -207,161 +179,6 @@ public class FileMap {
     return true;
   }
 
-  static ImmutableMap<String, Long> guessDataOffsets(File zipFile, int length) {
-    HashMap<String, Long> result = new HashMap<>();
-
-    // Parse the zip file entry offsets from the central directory section.
-    // See https://en.wikipedia.org/wiki/Zip_(file_format)
-
-    try (RandomAccessFile randomAccessFile = new RandomAccessFile(zipFile, "r")) {
-
-      // First read the 'end of central directory record' in order to find the start of the central
-      // directory
-      int endOfCdSize = Math.min(MAXIMUM_ZIP_EOCD_SIZE, length);
-      int endofCdOffset = length - endOfCdSize;
-      randomAccessFile.seek(endofCdOffset);
-      byte[] buffer = new byte[endOfCdSize];
-      randomAccessFile.readFully(buffer);
-
-      int centralDirOffset = findCentralDir(buffer);
-      if (centralDirOffset == -1) {
-        // If the zip file contains > 2^16 entries, a Zip64 EOCD is written, and the central
-        // dir offset in the regular EOCD may be -1.
-        centralDirOffset = findCentralDir64(buffer);
-      }
-      int offset = centralDirOffset - endofCdOffset;
-      if (offset < 0) {
-        // read the entire central directory record into memory
-        // for the framework jars this max of 5MB for Q
-        // TODO: consider using a smaller buffer size and re-reading as necessary
-        offset = 0;
-        randomAccessFile.seek(centralDirOffset);
-        final int cdSize = length - centralDirOffset;
-        buffer = new byte[cdSize];
-        randomAccessFile.readFully(buffer);
-      } else {
-        // the central directory is already in the buffer, no need to reread
-      }
-
-      // now read the entries
-      while (true) {
-        // Instead of trusting numRecords, read until we find the
-        // end-of-central-directory signature.  numRecords may wrap
-        // around with >64K entries.
-        int sig = readInt(buffer, offset);
-        if (sig == ENDSIG || sig == ENDSIG64) {
-          break;
-        }
-
-        int bitFlag = readShort(buffer, offset + 8);
-        int fileNameLength = readShort(buffer, offset + 28);
-        int extraLength = readShort(buffer, offset + 30);
-        int fieldCommentLength = readShort(buffer, offset + 32);
-        int relativeOffsetOfLocalFileHeader = readInt(buffer, offset + 42);
-
-        byte[] nameBytes = copyBytes(buffer, offset + 46, fileNameLength);
-        Charset encoding = getEncoding(bitFlag);
-        String fileName = new String(nameBytes, encoding);
-        byte[] localHeaderBuffer = new byte[30];
-        randomAccessFile.seek(relativeOffsetOfLocalFileHeader);
-        randomAccessFile.readFully(localHeaderBuffer);
-        // There are two extra field lengths stored in the zip - one in the central directory,
-        // one in the local header. And we should use one in local header to calculate the
-        // correct file content offset, because they are different some times.
-        int localHeaderExtraLength = readShort(localHeaderBuffer, 28);
-        int fileOffset =
-            relativeOffsetOfLocalFileHeader + 30 + fileNameLength + localHeaderExtraLength;
-        result.put(fileName, (long) fileOffset);
-        offset += 46 + fileNameLength + extraLength + fieldCommentLength;
-      }
-
-      return ImmutableMap.copyOf(result);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
-  }
-
-  private static byte[] copyBytes(byte[] buffer, int offset, int length) {
-    byte[] result = new byte[length];
-    System.arraycopy(buffer, offset, result, 0, length);
-    return result;
-  }
-
-  private static Charset getEncoding(int bitFlags) {
-    // UTF-8 now supported in name and comments: check general bit flag, bit
-    // 11, to determine if UTF-8 is being used or ISO-8859-1 is being used.
-    return (0 != ((bitFlags >>> 11) & 1)) ? UTF_8 : ISO_8859_1;
-  }
-
-  private static int findCentralDir(byte[] buffer) throws IOException {
-    // find start of central directory by scanning backwards
-    int scanOffset = buffer.length - EOCD_SIZE;
-
-    while (true) {
-      int val = readInt(buffer, scanOffset);
-      if (val == ENDSIG) {
-        break;
-      }
-
-      // Ok, keep backing up looking for the ZIP end central directory
-      // signature.
-      --scanOffset;
-      if (scanOffset < 0) {
-        throw new ZipException("ZIP directory not found, not a ZIP archive.");
-      }
-    }
-    // scanOffset is now start of end of central directory record
-    // the 'offset to central dir' data is at position 16 in the record
-    return readInt(buffer, scanOffset + 16);
-  }
-
-  private static int findCentralDir64(byte[] buffer) throws IOException {
-    // find start of central directory by scanning backwards
-    int scanOffset = buffer.length - EOCD_SIZE - ZIP64_EOCD_LOCATOR_SIZE - ZIP64_EOCD_SIZE;
-
-    while (true) {
-      int val = readInt(buffer, scanOffset);
-      if (val == ENDSIG64) {
-        break;
-      }
-
-      // Ok, keep backing up looking for the ZIP end central directory
-      // signature.
-      --scanOffset;
-      if (scanOffset < 0) {
-        throw new ZipException("ZIP directory not found, not a ZIP archive.");
-      }
-    }
-    // scanOffset is now start of end of central directory record
-    // the 'offset to central dir' data is at position 16 in the record
-    long offsetToCentralDir = readLong(buffer, scanOffset + 48);
-    return (int) offsetToCentralDir;
-  }
-
-  /** Read a 32-bit integer from a bytebuffer in little-endian order. */
-  private static int readInt(byte[] buffer, int offset) {
-    return Ints.fromBytes(
-        buffer[offset + 3], buffer[offset + 2], buffer[offset + 1], buffer[offset]);
-  }
-
-  /** Read a 64-bit integer from a bytebuffer in little-endian order. */
-  private static long readLong(byte[] buffer, int offset) {
-    return Longs.fromBytes(
-        buffer[offset + 7],
-        buffer[offset + 6],
-        buffer[offset + 5],
-        buffer[offset + 4],
-        buffer[offset + 3],
-        buffer[offset + 2],
-        buffer[offset + 1],
-        buffer[offset]);
-  }
-
-  /** Read a 16-bit short from a bytebuffer in little-endian order. */
-  private static short readShort(byte[] buffer, int offset) {
-    return Shorts.fromBytes(buffer[offset + 1], buffer[offset]);
-  }
-
   /*
    * This represents a memory-mapped file.  It might be the entire file or
    * only part of it.  This requires a little bookkeeping because the mapping
@@ -411,17 +228,15 @@ public class FileMap {
     if (mDataPtr == null) {
       mDataPtr = new byte[mDataLength];
 
-      InputStream is;
       try {
-        if (isFromZip) {
-          is = zipFile.getInputStream(zipEntry);
+        if (isFromZip && zipEntry.getMethod() == ZipEntry.DEFLATED) {
+          zipArchive.inflate(zipEntry, mDataOffset, mDataPtr);
+        } else if (isFromZip) {
+          zipArchive.slice(mDataOffset, mDataLength).get(mDataPtr);
         } else {
-          is = new FileInputStream(getFileName());
-        }
-        try {
-          readFully(is, mDataPtr);
-        } finally {
-          is.close();
+          try (InputStream is = new FileInputStream(getFileName())) {
+            readFully(is, mDataPtr);
+          }
         }
       } catch (IOException e) {
         throw new RuntimeException(e);
@@ -430,6 +245,31 @@ public class FileMap {
     return mDataPtr;
   }
 
+  /*
+   * Get a read-only, memory-mapped view of the piece of the file we requested, or null if it can't
+   * be mapped (e.g. it is a compressed zip entry) and getDataPtr() must be used instead.
+   *
+   * Non-Android framework method.
+   */
+  synchronized ByteBuffer getMappedData() {
+    if (mMappedData == null && mDataPtr == null && isMappable()) {
+      try {
+        mMappedData = zipArchive.slice(mDataOffset, mDataLength);
+      } catch (IOException e) {
+        ALOGV("MAP: failed to map %s, falling back to heap: %s\n", this, e);
+        return null;
+      }
+    }
+    // Hand out a duplicate so callers can't disturb each other's position or byte order.
+    return mMappedData == null ? null : mMappedData.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private boolean isMappable() {
+    return isFromZip
+        && zipEntry.getMethod() == ZipEntry.STORED
+        && mDataLength > 0;
+  }
+
   public static void readFully(InputStream is, byte[] bytes) throws IOException {
     int size = bytes.length;
     int remaining = size;
@@ -492,13 +332,14 @@ public class FileMap {
   int mBaseLength; // length, measured from "mBasePtr"
   long mDataOffset; // offset used when map was created
   byte[] mDataPtr; // start of requested data, offset from base
+  ByteBuffer mMappedData; // read-only slice of the mapped archive of the requested data, if mapped
   int mDataLength; // length, measured from "mDataPtr"
   static long mPageSize;
 
   @Override
   public String toString() {
     if (isFromZip) {
-      return "FileMap{" + "zipFile=" + zipFile.getName() + ", zipEntry=" + zipEntry + '}';
+      return "FileMap{" + "zipFile=" + zipArchive.fileName + ", zipEntry=" + zipEntry + '}';
     } else {
       return "FileMap{" + "mFileName='" + mFileName + '\'' + '}';
     }
@@ -67,7 +67,7 @@ public class LoadedArsc {
   // namespace android {
   //
 
-  private static final int kFrameworkPackageId = 0x01;
+  static final int kFrameworkPackageId = 0x01;
 
   static class DynamicPackageEntry {
 
@@ -114,8 +114,7 @@ public class LoadedArsc {
       }
 
       // uint32_t* flags = reinterpret_cast<uint32_t*>(type_spec + 1);
-      int[] flags = type_spec.getSpecFlags();
-      return flags[entry_index];
+      return type_spec.getSpecFlag(entry_index);
     }
   }
 
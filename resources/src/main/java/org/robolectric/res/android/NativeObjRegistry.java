@@ -2,26 +2,47 @@ package org.robolectric.res.android;
 
 import static java.util.Objects.requireNonNull;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.robolectric.util.Logger;
 
 /**
  * A unique id per object registry. Used to emulate android platform behavior of storing a long
  * which represents a pointer to an object.
+ *
+ * <p>Ids are handed out in increasing order and are never reused until {@link #clear()}, so a
+ * stale id never resolves to a different object. Objects are stored in pages of slots indexed by
+ * id, which makes {@link #getNativeObject(long)} and {@link #peekNativeObject(long)} O(1) and
+ * lock-free; only registration and unregistration synchronize. Pages are released as soon as all
+ * of their ids have been unregistered.
+ *
+ * <p>If the {@code robolectric.nativeObjRegistry.reportLeaks} system property is true, the objects
+ * that are still registered when a registry is cleared (e.g. by a shadow's resetter between tests)
+ * are logged.
  */
 public class NativeObjRegistry<T> {
 
   private static final int INITIAL_ID = 1;
 
+  private static final int PAGE_SHIFT = 10;
+  private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+  private static final boolean REPORT_LEAKS =
+      Boolean.getBoolean("robolectric.nativeObjRegistry.reportLeaks");
+
   private final String name;
   private final boolean debug;
-  private final BiMap<Long, T> nativeObjToIdMap = HashBiMap.create();
+  // Only used while holding the lock; lookups by id go through the directory instead.
+  private final Map<T, Long> nativeObjToIdMap = new HashMap<>();
   private final Map<Long, DebugInfo> idToDebugInfoMap;
 
+  // Replaced while holding the lock, and read without it.
+  private volatile Directory directory = new Directory(0, 1);
+
   private long nextId = INITIAL_ID;
 
   public NativeObjRegistry(Class<T> theClass) {
@@ -51,13 +72,13 @@ public class NativeObjRegistry<T> {
   @Deprecated
   public synchronized long getNativeObjectId(T o) {
     requireNonNull(o);
-    Long nativeId = nativeObjToIdMap.inverse().get(o);
+    Long nativeId = nativeObjToIdMap.get(o);
     if (nativeId == null) {
       nativeId = nextId;
       if (debug) {
         System.out.printf("NativeObjRegistry %s: register %d -> %s%n", name, nativeId, o);
       }
-      nativeObjToIdMap.put(nativeId, o);
+      put(nativeId, o);
       nextId++;
     }
     return nativeId;
@@ -70,7 +91,7 @@ public class NativeObjRegistry<T> {
    */
   public synchronized long register(T o) {
     requireNonNull(o);
-    Long nativeId = nativeObjToIdMap.inverse().get(o);
+    Long nativeId = nativeObjToIdMap.get(o);
     if (nativeId != null) {
       if (debug) {
         DebugInfo debugInfo = idToDebugInfoMap.get(nativeId);
@@ -88,7 +109,7 @@ public class NativeObjRegistry<T> {
       System.out.printf("NativeObjRegistry %s: register %d -> %s%n", name, nativeId, o);
       idToDebugInfoMap.put(nativeId, new DebugInfo(new Trace()));
     }
-    nativeObjToIdMap.put(nativeId, o);
+    put(nativeId, o);
     nextId++;
     return nativeId;
   }
@@ -101,7 +122,7 @@ public class NativeObjRegistry<T> {
    *     unregistered.
    */
   public synchronized T unregister(long nativeId) {
-    T o = nativeObjToIdMap.remove(nativeId);
+    T o = remove(nativeId);
     if (debug) {
       System.out.printf("NativeObjRegistry %s: unregister %d -> %s%n", name, nativeId, o);
       new RuntimeException("unregister debug").printStackTrace(System.out);
@@ -120,6 +141,7 @@ public class NativeObjRegistry<T> {
       throw new IllegalStateException(
           nativeId + " has already been removed (or was never registered)");
     }
+    nativeObjToIdMap.remove(o);
     return o;
   }
 
@@ -128,19 +150,19 @@ public class NativeObjRegistry<T> {
    */
   @Deprecated
   public synchronized void unregister(T removed) {
-    nativeObjToIdMap.inverse().remove(removed);
+    Long nativeId = nativeObjToIdMap.remove(removed);
+    if (nativeId != null) {
+      remove(nativeId);
+    }
   }
 
   /** Retrieve the native object for given id. Throws if object with that id cannot be found */
-  public synchronized T getNativeObject(long nativeId) {
-    T object = nativeObjToIdMap.get(nativeId);
+  public T getNativeObject(long nativeId) {
+    T object = lookup(nativeId);
     if (object != null) {
       return object;
     } else {
-      throw new NullPointerException(
-          String.format(
-              "Could not find object with nativeId: %d. Currently registered ids: %s",
-              nativeId, nativeObjToIdMap.keySet()));
+      throw new NullPointerException(describeMissing(nativeId));
     }
   }
 
@@ -150,29 +172,168 @@ public class NativeObjRegistry<T> {
    * @throws IllegalStateException if no object was registered with the given id before
    */
   public synchronized void update(long nativeId, T o) {
-    T previous = nativeObjToIdMap.get(nativeId);
+    T previous = lookup(nativeId);
     if (previous == null) {
       throw new IllegalStateException("Native id " + nativeId + " was never registered");
     }
+    Long existingId = nativeObjToIdMap.get(o);
+    if (existingId != null && existingId != nativeId) {
+      throw new IllegalArgumentException("value already present: " + o);
+    }
     if (debug) {
       System.out.printf("NativeObjRegistry %s: update %d -> %s%n", name, nativeId, o);
       idToDebugInfoMap.put(nativeId, new DebugInfo(new Trace()));
     }
-    nativeObjToIdMap.put(nativeId, o);
+    nativeObjToIdMap.remove(previous);
+    // Replaces the object in its slot, so concurrent lookups never see the id as missing.
+    put(nativeId, o);
   }
 
   /**
    * Similar to {@link #getNativeObject(long)} but returns null if object with given id cannot be
    * found.
    */
-  public synchronized T peekNativeObject(long nativeId) {
-    return nativeObjToIdMap.get(nativeId);
+  public T peekNativeObject(long nativeId) {
+    return lookup(nativeId);
+  }
+
+  /** Returns the number of objects that are currently registered. */
+  public synchronized int size() {
+    return nativeObjToIdMap.size();
   }
 
   /** WARNING -- dangerous! Call {@link #unregister(long)} instead! */
   public synchronized void clear() {
+    if (REPORT_LEAKS && !nativeObjToIdMap.isEmpty()) {
+      Logger.warn(
+          "NativeObjRegistry %s: %d objects were never unregistered: %s",
+          name, nativeObjToIdMap.size(), nativeObjToIdMap);
+    }
     nextId = INITIAL_ID;
     nativeObjToIdMap.clear();
+    directory = new Directory(0, 1);
+  }
+
+  private T lookup(long nativeId) {
+    Directory directory = this.directory;
+    long pageIndex = (nativeId >>> PAGE_SHIFT) - directory.firstPage;
+    if (nativeId < 0 || pageIndex < 0 || pageIndex >= directory.pages.length()) {
+      return null;
+    }
+    Page page = directory.pages.get((int) pageIndex);
+    if (page == null) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    T object = (T) page.slots.get((int) (nativeId & (PAGE_SIZE - 1)));
+    return object;
+  }
+
+  private synchronized String describeMissing(long nativeId) {
+    List<Long> registeredIds = new ArrayList<>(nativeObjToIdMap.values());
+    Collections.sort(registeredIds);
+    return String.format(
+        "Could not find object with nativeId: %d%s. Currently registered ids: %s",
+        nativeId,
+        nativeId >= INITIAL_ID && nativeId < nextId ? " (it was already unregistered)" : "",
+        registeredIds);
+  }
+
+  // Must hold the lock.
+  private void put(long nativeId, T o) {
+    nativeObjToIdMap.put(o, nativeId);
+    long pageNumber = nativeId >>> PAGE_SHIFT;
+    Directory directory = this.directory;
+    if (pageNumber - directory.firstPage >= directory.pages.length()) {
+      directory =
+          directory.resize(
+              directory.firstPage,
+              (int) Math.max(pageNumber - directory.firstPage + 1, 2L * directory.pages.length()));
+      this.directory = directory;
+    }
+    int pageIndex = (int) (pageNumber - directory.firstPage);
+    Page page = directory.pages.get(pageIndex);
+    if (page == null) {
+      page = new Page();
+      directory.pages.set(pageIndex, page);
+      // The previous page won't be handed out any more ids, so it can go if it's already empty.
+      releaseIfEmpty(pageNumber - 1);
+    }
+    if (page.slots.getAndSet((int) (nativeId & (PAGE_SIZE - 1)), o) == null) {
+      page.live++;
+    }
+  }
+
+  // Must hold the lock. Only updates the directory; the caller updates nativeObjToIdMap.
+  private T remove(long nativeId) {
+    T o = lookup(nativeId);
+    if (o == null) {
+      return null;
+    }
+    long pageNumber = nativeId >>> PAGE_SHIFT;
+    Page page = directory.pages.get((int) (pageNumber - directory.firstPage));
+    page.slots.set((int) (nativeId & (PAGE_SIZE - 1)), null);
+    page.live--;
+    releaseIfEmpty(pageNumber);
+    return o;
+  }
+
+  // Must hold the lock. Ids are never reused, so a page that is empty and won't be handed out any
+  // more ids is released.
+  private void releaseIfEmpty(long pageNumber) {
+    Directory directory = this.directory;
+    long currentPage = nextId >>> PAGE_SHIFT;
+    long pageIndex = pageNumber - directory.firstPage;
+    if (pageNumber >= currentPage || pageIndex < 0) {
+      return;
+    }
+    Page page = directory.pages.get((int) pageIndex);
+    if (page == null || page.live > 0) {
+      return;
+    }
+    directory.pages.set((int) pageIndex, null);
+
+    // Once at least half of the directory is taken up by released pages at its start, move it up,
+    // so that it only spans the ids that are still in use.
+    int released = 0;
+    while (released < directory.pages.length()
+        && directory.firstPage + released < currentPage
+        && directory.pages.get(released) == null) {
+      released++;
+    }
+    if (released > 0 && released * 2 >= directory.pages.length()) {
+      this.directory =
+          directory.resize(
+              directory.firstPage + released, Math.max(directory.pages.length() - released, 1));
+    }
+  }
+
+  private static final class Page {
+    final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(PAGE_SIZE);
+    // The number of occupied slots; only used while holding the lock.
+    int live;
+  }
+
+  private static final class Directory {
+    // The number of the page that holds ids [firstPage * PAGE_SIZE, (firstPage + 1) * PAGE_SIZE).
+    final long firstPage;
+    final AtomicReferenceArray<Page> pages;
+
+    Directory(long firstPage, int capacity) {
+      this.firstPage = firstPage;
+      this.pages = new AtomicReferenceArray<>(capacity);
+    }
+
+    Directory resize(long newFirstPage, int capacity) {
+      Directory resized = new Directory(newFirstPage, capacity);
+      for (int i = 0; i < pages.length(); i++) {
+        long newIndex = firstPage + i - newFirstPage;
+        if (newIndex >= 0 && newIndex < capacity) {
+          resized.pages.set((int) newIndex, pages.get(i));
+        }
+      }
+      return resized;
+    }
   }
 
   private static class DebugInfo {
@@ -16,6 +16,7 @@ import static org.robolectric.res.android.Util.ALOGW;
 import static org.robolectric.res.android.Util.SIZEOF_INT;
 import static org.robolectric.res.android.Util.isTruthy;
 
+import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -26,6 +27,7 @@ import org.robolectric.res.android.ResourceTypes.ResStringPool_header.Writer;
 import org.robolectric.res.android.ResourceTypes.ResStringPool_ref;
 import org.robolectric.res.android.ResourceTypes.ResStringPool_span;
 import org.robolectric.res.android.ResourceTypes.WithOffset;
+import org.robolectric.util.PerfStatsCollector;
 
 /** Convenience class for accessing data in a ResStringPool resource. */
 @SuppressWarnings("NewApi")
@@ -33,6 +35,9 @@ public class ResStringPool {
 
   private static final boolean kDebugStringPoolNoisy = false;
 
+  // Cache hits are reported to PerfStatsCollector in batches to keep stringAt() cheap.
+  private static final int CACHE_HITS_PER_REPORT = 4096;
+
   private final long myNativePtr;
 
   private int mError;
@@ -50,8 +55,13 @@ public class ResStringPool {
   //    const void*                 mStrings;
   private int mStrings;
   // private List<String> mStrings;
-  // private String[] mCache;
   // private char16_t mutable**          mCache;
+  // Decoded strings indexed by string index, populated lazily by stringAt(). Softly referenced so
+  // the decoded copies of large pools (e.g. the framework's) can be reclaimed under memory
+  // pressure. Pools may be shared between sandboxes; racing writers store equal Strings, so no
+  // locking is needed.
+  private SoftReference<String[]> mCache;
+  private int mCacheHits;
   private int mStringPoolSize; // number of uint16_t
   //    const uint32_t*             mStyles;
   private int mStyles;
@@ -330,9 +340,33 @@ public class ResStringPool {
   void uninit() {
     setError(NO_INIT);
     mHeader = null;
+    mCache = null;
   }
 
   public String stringAt(int idx) {
+    if (mError == NO_ERROR && idx >= 0 && idx < mHeader.stringCount) {
+      String[] cache = mCache == null ? null : mCache.get();
+      if (cache == null) {
+        cache = new String[mHeader.stringCount];
+        mCache = new SoftReference<>(cache);
+      }
+      String s = cache[idx];
+      if (s != null) {
+        if (++mCacheHits == CACHE_HITS_PER_REPORT) {
+          mCacheHits = 0;
+          PerfStatsCollector.getInstance()
+              .incrementCount("ResStringPool.cacheHits", CACHE_HITS_PER_REPORT);
+        }
+        return s;
+      }
+      s = decodeStringAt(idx);
+      cache[idx] = s;
+      return s;
+    }
+    return null;
+  }
+
+  private String decodeStringAt(int idx) {
     if (mError == NO_ERROR && idx < mHeader.stringCount) {
       final boolean isUTF8 = (mHeader.flags & ResStringPool_header.UTF8_FLAG) != 0;
       //        const uint32_t off = mEntries[idx]/(isUTF8?sizeof(uint8_t):sizeof(uint16_t));
@@ -49,6 +49,10 @@ public class ResXMLTree {
   int mRootExt;
   int mRootCode;
 
+  // Java-only: true if the parsed data (in particular mStrings) is shared with other trees, in
+  // which case it must never be modified in place. See ResXMLTree(DynamicRefTable, ResXMLTree).
+  private boolean mSharedData;
+
   static volatile AtomicInteger gCount = new AtomicInteger(0);
 
   public ResXMLTree(DynamicRefTable dynamicRefTable) {
@@ -68,6 +72,31 @@ public class ResXMLTree {
   //    this(null);
   //  }
 
+  /**
+   * Java-only: creates a tree that shares the already parsed, immutable data of {@code parsed}, but
+   * has its own parser and dynamic reference table. This is much cheaper than parsing the same
+   * document again, and lets the same compiled XML file be handed out many times, e.g. when
+   * inflating a list item layout.
+   */
+  public ResXMLTree(DynamicRefTable dynamicRefTable, ResXMLTree parsed) {
+    this(dynamicRefTable);
+    parsed.mSharedData = true;
+    mSharedData = true;
+    mError = parsed.mError;
+    mOwnedData = parsed.mOwnedData;
+    mBuffer = parsed.mBuffer;
+    mHeader = parsed.mHeader;
+    mSize = parsed.mSize;
+    mDataLen = parsed.mDataLen;
+    mStrings = parsed.mStrings;
+    mResIds = parsed.mResIds;
+    mNumResIds = parsed.mNumResIds;
+    mRootNode = parsed.mRootNode;
+    mRootExt = parsed.mRootExt;
+    mRootCode = parsed.mRootCode;
+    mParser.restart();
+  }
+
   //  ~ResXMLTree()
   //  {
   @Override
@@ -75,7 +104,10 @@ public class ResXMLTree {
     if (kDebugResXMLTree) {
       ALOGI("Destroying ResXMLTree in %s #%d\n", this, gCount.getAndDecrement() - 1);
     }
-    uninit();
+    // Java-only: shared data is still in use by other trees, and is reclaimed along with them.
+    if (!mSharedData) {
+      uninit();
+    }
   }
 
   public int setTo(byte[] data, int size, boolean copyData) {
@@ -200,7 +232,13 @@ public class ResXMLTree {
 
   void uninit() {
     mError = NO_INIT;
-    mStrings.uninit();
+    if (mSharedData) {
+      // Java-only: other trees may still be using the string pool, so just let go of it.
+      mStrings = new ResStringPool();
+      mSharedData = false;
+    } else {
+      mStrings.uninit();
+    }
     if (isTruthy(mOwnedData)) {
       //      free(mOwnedData);
       mOwnedData = null;
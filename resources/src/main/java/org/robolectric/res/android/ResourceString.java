@@ -22,6 +22,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 import com.google.common.primitives.UnsignedBytes;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
@@ -71,7 +72,6 @@ public final class ResourceString {
    * @param type The encoding type that the {@link ResourceString} is encoded in.
    * @return The decoded string.
    */
-  @SuppressWarnings("ByteBufferBackingArray")
   public static String decodeString(ByteBuffer buffer, int offset, Type type) {
     int length;
     int characterCount = decodeLength(buffer, offset, type);
@@ -84,7 +84,7 @@ public final class ResourceString {
     } else {
       length = characterCount * 2;
     }
-    ByteBuffer stringBuffer = ByteBuffer.wrap(buffer.array(), offset, length);
+    ByteBuffer stringBuffer = slice(buffer, offset, length);
     // Use normal UTF-8 and UTF-16 decoder to decode string
     try {
       return type.decoder().decode(stringBuffer).toString();
@@ -93,7 +93,7 @@ public final class ResourceString {
         return null;
       }
     }
-    stringBuffer = ByteBuffer.wrap(buffer.array(), offset, length);
+    stringBuffer = slice(buffer, offset, length);
     // Use CESU8 decoder to try decode failed UTF-8 string, especially modified UTF-8.
     // See
     // https://source.android.com/devices/tech/dalvik/dex-format?hl=hr-HR&skip_cache=true#mutf-8.
@@ -104,6 +104,17 @@ public final class ResourceString {
     }
   }
 
+  /**
+   * Returns a view of {@code length} bytes of {@code buffer} starting at {@code offset}. Unlike
+   * wrapping {@link ByteBuffer#array()}, this also works for direct and memory-mapped buffers.
+   */
+  private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer slice = buffer.duplicate();
+    ((Buffer) slice).limit(offset + length);
+    ((Buffer) slice).position(offset);
+    return slice;
+  }
+
   /**
    * Encodes a string in either UTF-8 or UTF-16 and returns the bytes of the encoded string. Strings
    * are prefixed by 2 values. The first is the number of characters in the string. The second is
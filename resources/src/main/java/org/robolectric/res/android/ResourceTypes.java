@@ -1089,6 +1089,11 @@ public class ResourceTypes {
       }
       return ints;
     }
+
+    /** Returns the flags of a single entry without copying the whole array. */
+    public int getSpecFlag(int entryIndex) {
+      return myBuf().getInt(myOffset() + header.headerSize + entryIndex * 4);
+    }
   }
 
   /**
@@ -0,0 +1,163 @@
+package org.robolectric.res.android;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.robolectric.util.PerfStatsCollector;
+
+/**
+ * Java-only: memoizes the attribute arrays computed by {@link AttributeResolution10#ApplyStyle}
+ * and {@link AttributeResolution10#ResolveAttrs} for a single {@link CppAssetManager2.Theme}.
+ *
+ * <p>Views commonly obtain the same attributes with the same default style many times, e.g. once
+ * per inflated list item. The results only depend on the call's inputs, the contents of the theme,
+ * and the configuration and ApkAssets of its AssetManager, so the cache is stamped with the theme's
+ * version and the AssetManager's generation and drops everything as soon as either one changes.
+ * Calls that read attributes from an XML parser are keyed by the values they read from it.
+ *
+ * <p>Hits and misses are recorded with {@link PerfStatsCollector}, if it is enabled.
+ */
+final class ThemeAttributeCache {
+
+  // Bounds the memory held by long-lived themes; the least recently used results go first.
+  private static final int MAX_ENTRIES = 128;
+
+  private final Map<Key, Result> results =
+      new LinkedHashMap<Key, Result>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      };
+
+  private int themeVersion = -1;
+  private int assetManagerGeneration = -1;
+
+  /**
+   * Returns the cached result for {@code key}, or null if there is none or the theme or its
+   * AssetManager has changed since it was computed.
+   */
+  Result get(Key key, int themeVersion, int assetManagerGeneration) {
+    validate(themeVersion, assetManagerGeneration);
+    Result result = results.get(key);
+    PerfStatsCollector perfStats = PerfStatsCollector.getInstance();
+    if (perfStats.isEnabled()) {
+      perfStats.incrementCount(
+          result != null ? "ThemeAttributeCache.hit" : "ThemeAttributeCache.miss");
+    }
+    return result;
+  }
+
+  /**
+   * Caches the arrays computed for {@code key} with the given theme and AssetManager. Both arrays
+   * are retained, so callers must not modify them afterwards.
+   */
+  Result put(
+      Key key, int themeVersion, int assetManagerGeneration, int[] values, int[] indices) {
+    validate(themeVersion, assetManagerGeneration);
+    Result result = new Result(values, indices);
+    results.put(key, result);
+    return result;
+  }
+
+  private void validate(int themeVersion, int assetManagerGeneration) {
+    if (themeVersion != this.themeVersion
+        || assetManagerGeneration != this.assetManagerGeneration) {
+      results.clear();
+      this.themeVersion = themeVersion;
+      this.assetManagerGeneration = assetManagerGeneration;
+    }
+  }
+
+  /** The inputs of a single ApplyStyle() or ResolveAttrs() call. */
+  static final class Key {
+    private final boolean applyStyle;
+    private final int defStyleAttr;
+    private final int defStyleRes;
+    private final int[] srcValues;
+    private final int[] xmlValues;
+    private final int[] attrs;
+    private final int hash;
+
+    Key(
+        boolean applyStyle,
+        int defStyleAttr,
+        int defStyleRes,
+        int[] srcValues,
+        int srcValuesLength,
+        int[] xmlValues,
+        int[] attrs,
+        int attrsLength) {
+      this.applyStyle = applyStyle;
+      this.defStyleAttr = defStyleAttr;
+      this.defStyleRes = defStyleRes;
+      // Only the presence and the first attrsLength source values are ever read.
+      this.srcValues =
+          srcValuesLength > 0
+              ? Arrays.copyOf(srcValues, Math.min(srcValuesLength, attrsLength))
+              : null;
+      this.xmlValues = xmlValues;
+      this.attrs = Arrays.copyOf(attrs, attrsLength);
+      int hash = applyStyle ? 1 : 0;
+      hash = 31 * hash + defStyleAttr;
+      hash = 31 * hash + defStyleRes;
+      hash = 31 * hash + Arrays.hashCode(this.srcValues);
+      hash = 31 * hash + Arrays.hashCode(xmlValues);
+      hash = 31 * hash + Arrays.hashCode(this.attrs);
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return hash == that.hash
+          && applyStyle == that.applyStyle
+          && defStyleAttr == that.defStyleAttr
+          && defStyleRes == that.defStyleRes
+          && Arrays.equals(srcValues, that.srcValues)
+          && Arrays.equals(xmlValues, that.xmlValues)
+          && Arrays.equals(attrs, that.attrs);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /** The out_values and out_indices computed for a {@link Key}. */
+  static final class Result {
+    private final int[] values;
+    private final int[] indices;
+
+    private Result(int[] values, int[] indices) {
+      this.values = values;
+      this.indices = indices;
+    }
+
+    /**
+     * Copies the result into the caller's arrays. Only the first {@code columns} values of each
+     * entry are written, leaving the others as they were, like the uncached call would. {@code
+     * outIndices} may be null.
+     */
+    void copyTo(int[] outValues, int[] outIndices, int columns) {
+      int stride = AttributeResolution10.STYLE_NUM_ENTRIES;
+      if (columns == stride) {
+        System.arraycopy(values, 0, outValues, 0, values.length);
+      } else {
+        for (int offset = 0; offset < values.length; offset += stride) {
+          System.arraycopy(values, offset, outValues, offset, columns);
+        }
+      }
+      if (outIndices != null) {
+        System.arraycopy(indices, 0, outIndices, 0, indices[0] + 1);
+      }
+    }
+  }
+}
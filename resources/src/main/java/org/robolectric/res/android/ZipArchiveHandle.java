@@ -1,14 +1,444 @@
 package org.robolectric.res.android;
 
-import com.google.common.collect.ImmutableMap;
-import java.util.zip.ZipFile;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
-public class ZipArchiveHandle {
-  final ZipFile zipFile;
-  final ImmutableMap<String, Long> dataOffsets;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import org.robolectric.util.PerfStatsCollector;
 
-  public ZipArchiveHandle(ZipFile zipFile, ImmutableMap<String, Long> dataOffsets) {
-    this.zipFile = zipFile;
-    this.dataOffsets = dataOffsets;
+/**
+ * An open zip archive, the equivalent of libziparchive's ZipArchiveHandle.
+ *
+ * <p>The whole archive is memory-mapped read-only, and its central directory is parsed once into
+ * primitive arrays sorted by entry name. Stored entries are handed out as slices of the mapping
+ * without copying them, and deflated entries are inflated straight from it.
+ *
+ * <p>Handles are shared by everything that opens the same file (e.g. the {@link CppApkAssets} of
+ * several sandboxes) for as long as any of them is still reachable. A file is parsed again if its
+ * length or modification time has changed. Reuses and parses are recorded with {@link
+ * PerfStatsCollector}.
+ *
+ * <p>That check only protects against a file being replaced, e.g. by a build writing a new APK and
+ * renaming it over the old one. A file that is truncated or rewritten in place while it is still
+ * mapped may crash the JVM with SIGBUS on the next access to the mapping.
+ *
+ * <p>Entry names are decoded as UTF-8 if their language encoding flag (general purpose bit 11) is
+ * set, and as CP437, the zip format's default encoding, otherwise.
+ */
+public final class ZipArchiveHandle {
+
+  private static final int LOCSIG = 0x04034b50;
+  private static final int CENSIG = 0x02014b50;
+  private static final int ENDSIG = 0x06054b50;
+  private static final int ZIP64_LOCSIG = 0x07064b50;
+  private static final int ZIP64_ENDSIG = 0x06064b50;
+
+  private static final int LOCHDR = 30;
+  private static final int CENHDR = 46;
+  private static final int ENDHDR = 22;
+  private static final int ZIP64_LOCHDR = 20;
+  private static final int MAX_COMMENT_SIZE = 0xffff;
+
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  private static final long ZIP64_MAGIC = 0xffffffffL;
+
+  // The size of the chunks of compressed data that are copied out of the mapping for the Inflater.
+  private static final int INFLATE_CHUNK_SIZE = 64 * 1024;
+
+  // General purpose flag bit 11, set if the entry's name is encoded as UTF-8.
+  private static final int FLAG_UTF8 = 0x800;
+
+  // The encoding of names without FLAG_UTF8. Not every JRE has it, so fall back to the platform's.
+  private static final Charset DEFAULT_NAME_CHARSET =
+      Charset.isSupported("IBM437") ? Charset.forName("IBM437") : Charset.defaultCharset();
+
+  private static final ConcurrentHashMap<String, ArchiveReference> openArchives =
+      new ConcurrentHashMap<>();
+
+  // Enqueues the references in openArchives whose handles have been garbage collected.
+  private static final ReferenceQueue<ZipArchiveHandle> collectedArchives = new ReferenceQueue<>();
+
+  final String fileName;
+  private final long length;
+  private final long lastModified;
+
+  // Little-endian and never repositioned, so it can be read concurrently with absolute gets.
+  private final ByteBuffer mapping;
+
+  // Entry attributes, in central directory order.
+  private final String[] names;
+  private final short[] methods;
+  private final int[] crcs;
+  private final long[] compressedSizes;
+  private final long[] uncompressedSizes;
+  private final long[] localHeaderOffsets;
+
+  // Entry indices, sorted by name.
+  private final int[] sortedIndices;
+
+  private ZipArchiveHandle(String fileName, long length, long lastModified, ByteBuffer mapping)
+      throws ZipException {
+    this.fileName = fileName;
+    this.length = length;
+    this.lastModified = lastModified;
+    this.mapping = mapping;
+
+    int eocd = findEndOfCentralDirectory();
+    long entryCount = readUnsignedShort(eocd + 10);
+    long centralDirSize = readUnsignedInt(eocd + 12);
+    long centralDirOffset = readUnsignedInt(eocd + 16);
+    if (entryCount == 0xffff || centralDirSize == ZIP64_MAGIC || centralDirOffset == ZIP64_MAGIC) {
+      // If the zip file contains > 2^16 entries, a Zip64 EOCD is written, and the fields in the
+      // regular EOCD may be saturated.
+      int locator = eocd - ZIP64_LOCHDR;
+      if (locator >= 0 && mapping.getInt(locator) == ZIP64_LOCSIG) {
+        int zip64Eocd = checkedOffset(mapping.getLong(locator + 8), 56);
+        if (mapping.getInt(zip64Eocd) != ZIP64_ENDSIG) {
+          throw new ZipException("invalid zip64 end of central directory in " + fileName);
+        }
+        entryCount = mapping.getLong(zip64Eocd + 32);
+        centralDirSize = mapping.getLong(zip64Eocd + 40);
+        centralDirOffset = mapping.getLong(zip64Eocd + 48);
+      }
+    }
+    int offset = checkedOffset(centralDirOffset, 0);
+    int end = checkedOffset(centralDirOffset + centralDirSize, 0);
+
+    // Instead of trusting entryCount, which may wrap around, read until the central directory ends.
+    int capacity = (int) Math.max(0, Math.min(entryCount, (end - offset) / CENHDR));
+    String[] names = new String[capacity];
+    short[] methods = new short[capacity];
+    int[] crcs = new int[capacity];
+    long[] compressedSizes = new long[capacity];
+    long[] uncompressedSizes = new long[capacity];
+    long[] localHeaderOffsets = new long[capacity];
+    int count = 0;
+    while (offset + CENHDR <= end && mapping.getInt(offset) == CENSIG) {
+      if (count == names.length) {
+        int newCapacity = Math.max(16, count * 2);
+        names = Arrays.copyOf(names, newCapacity);
+        methods = Arrays.copyOf(methods, newCapacity);
+        crcs = Arrays.copyOf(crcs, newCapacity);
+        compressedSizes = Arrays.copyOf(compressedSizes, newCapacity);
+        uncompressedSizes = Arrays.copyOf(uncompressedSizes, newCapacity);
+        localHeaderOffsets = Arrays.copyOf(localHeaderOffsets, newCapacity);
+      }
+      int nameLength = readUnsignedShort(offset + 28);
+      int extraLength = readUnsignedShort(offset + 30);
+      int commentLength = readUnsignedShort(offset + 32);
+      if (offset + CENHDR + nameLength > end) {
+        throw new ZipException("invalid central directory entry in " + fileName);
+      }
+      long compressedSize = readUnsignedInt(offset + 20);
+      long uncompressedSize = readUnsignedInt(offset + 24);
+      long localHeaderOffset = readUnsignedInt(offset + 42);
+
+      // Sizes and offsets that don't fit in 32 bits are stored in the zip64 extra field instead.
+      int extra = offset + CENHDR + nameLength;
+      int extraEnd = Math.min(extra + extraLength, end);
+      while (extra + 4 <= extraEnd) {
+        int id = readUnsignedShort(extra);
+        int size = readUnsignedShort(extra + 2);
+        if (id == ZIP64_EXTRA_ID) {
+          int field = extra + 4;
+          if (uncompressedSize == ZIP64_MAGIC && field + 8 <= extraEnd) {
+            uncompressedSize = mapping.getLong(field);
+            field += 8;
+          }
+          if (compressedSize == ZIP64_MAGIC && field + 8 <= extraEnd) {
+            compressedSize = mapping.getLong(field);
+            field += 8;
+          }
+          if (localHeaderOffset == ZIP64_MAGIC && field + 8 <= extraEnd) {
+            localHeaderOffset = mapping.getLong(field);
+          }
+          break;
+        }
+        extra += 4 + size;
+      }
+
+      boolean utf8 = (readUnsignedShort(offset + 8) & FLAG_UTF8) != 0;
+      names[count] = readString(offset + CENHDR, nameLength, utf8 ? UTF_8 : DEFAULT_NAME_CHARSET);
+      methods[count] = mapping.getShort(offset + 10);
+      crcs[count] = mapping.getInt(offset + 16);
+      compressedSizes[count] = compressedSize;
+      uncompressedSizes[count] = uncompressedSize;
+      localHeaderOffsets[count] = localHeaderOffset;
+      count++;
+      offset += CENHDR + nameLength + extraLength + commentLength;
+    }
+
+    this.names = Arrays.copyOf(names, count);
+    this.methods = Arrays.copyOf(methods, count);
+    this.crcs = Arrays.copyOf(crcs, count);
+    this.compressedSizes = Arrays.copyOf(compressedSizes, count);
+    this.uncompressedSizes = Arrays.copyOf(uncompressedSizes, count);
+    this.localHeaderOffsets = Arrays.copyOf(localHeaderOffsets, count);
+
+    // Arrays.sort() is stable for objects, so duplicate names stay in central directory order.
+    Integer[] order = new Integer[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> this.names[a].compareTo(this.names[b]));
+    this.sortedIndices = new int[count];
+    for (int i = 0; i < count; i++) {
+      sortedIndices[i] = order[i];
+    }
+  }
+
+  /**
+   * Returns the handle for the zip archive at {@code fileName}, mapping and parsing it if no
+   * up-to-date handle for it is open yet.
+   */
+  static ZipArchiveHandle open(String fileName) throws IOException {
+    removeCollectedArchives();
+    File file = new File(fileName);
+    String key = file.getAbsolutePath();
+    long length = file.length();
+    long lastModified = file.lastModified();
+    ZipArchiveHandle[] result = new ZipArchiveHandle[1];
+    IOException[] failure = new IOException[1];
+    openArchives.compute(
+        key,
+        (k, ref) -> {
+          ZipArchiveHandle existing = ref == null ? null : ref.get();
+          if (existing != null
+              && existing.length == length
+              && existing.lastModified == lastModified) {
+            PerfStatsCollector.getInstance().incrementCount("ZipArchiveHandle.reuse");
+            result[0] = existing;
+            return ref;
+          }
+          try {
+            result[0] = map(fileName, file, length, lastModified);
+          } catch (IOException e) {
+            failure[0] = e;
+            return null;
+          }
+          PerfStatsCollector.getInstance().incrementCount("ZipArchiveHandle.parse");
+          return new ArchiveReference(k, result[0]);
+        });
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+    return result[0];
+  }
+
+  private static void removeCollectedArchives() {
+    Reference<? extends ZipArchiveHandle> ref;
+    while ((ref = collectedArchives.poll()) != null) {
+      // The file may have been opened again since, so only remove this reference.
+      openArchives.remove(((ArchiveReference) ref).key, ref);
+    }
+  }
+
+  private static ZipArchiveHandle map(String fileName, File file, long length, long lastModified)
+      throws IOException {
+    if (length > Integer.MAX_VALUE) {
+      throw new ZipException(fileName + " is too large to be mapped");
+    }
+    ByteBuffer mapping;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      mapping = channel.map(MapMode.READ_ONLY, 0, channel.size());
+    }
+    mapping.order(ByteOrder.LITTLE_ENDIAN);
+    return PerfStatsCollector.getInstance()
+        .measure(
+            "load zip central directory",
+            () -> new ZipArchiveHandle(fileName, length, lastModified, mapping));
+  }
+
+  /** Returns the index of the entry named {@code name}, or -1 if there is none. */
+  int findEntry(String name) {
+    int low = 0;
+    int high = sortedIndices.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = names[sortedIndices[mid]].compareTo(name);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        // Like java.util.zip.ZipFile, prefer the last of several entries with the same name.
+        while (mid + 1 < sortedIndices.length && names[sortedIndices[mid + 1]].equals(name)) {
+          mid++;
+        }
+        return sortedIndices[mid];
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the number of entries in the archive. */
+  int getEntryCount() {
+    return names.length;
+  }
+
+  /** Returns a new {@link ZipEntry} describing the entry at {@code index}. */
+  ZipEntry getEntry(int index) {
+    ZipEntry entry = new ZipEntry(names[index]);
+    if (methods[index] == ZipEntry.STORED || methods[index] == ZipEntry.DEFLATED) {
+      entry.setMethod(methods[index]);
+    }
+    entry.setCrc(crcs[index] & 0xffffffffL);
+    entry.setCompressedSize(compressedSizes[index]);
+    entry.setSize(uncompressedSizes[index]);
+    return entry;
+  }
+
+  /** Returns the entries of the archive, in central directory order. */
+  Enumeration<ZipEntry> entries() {
+    return new Enumeration<ZipEntry>() {
+      private int next = 0;
+
+      @Override
+      public boolean hasMoreElements() {
+        return next < names.length;
+      }
+
+      @Override
+      public ZipEntry nextElement() {
+        if (next >= names.length) {
+          throw new NoSuchElementException();
+        }
+        return getEntry(next++);
+      }
+    };
+  }
+
+  /**
+   * Returns the offset of the data of the entry at {@code index}, which follows its local file
+   * header.
+   */
+  long getDataOffset(int index) throws ZipException {
+    int localHeader = checkedOffset(localHeaderOffsets[index], LOCHDR);
+    if (mapping.getInt(localHeader) != LOCSIG) {
+      throw new ZipException("invalid local header for " + names[index] + " in " + fileName);
+    }
+    // The extra field in the local header may differ from the one in the central directory, so
+    // the local one has to be used to find the data.
+    return localHeader
+        + LOCHDR
+        + readUnsignedShort(localHeader + 26)
+        + readUnsignedShort(localHeader + 28);
+  }
+
+  /**
+   * Returns a read-only, little-endian view of {@code length} bytes of the archive starting at
+   * {@code offset}, without copying them.
+   */
+  ByteBuffer slice(long offset, int length) throws ZipException {
+    int start = checkedOffset(offset, length);
+    ByteBuffer slice = mapping.duplicate();
+    ((Buffer) slice).limit(start + length);
+    ((Buffer) slice).position(start);
+    return slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Inflates the deflated data of {@code entry}, which starts at {@code dataOffset}, into {@code
+   * out}. The compressed data is streamed from the mapping in chunks, so it is never copied onto
+   * the heap as a whole.
+   */
+  void inflate(ZipEntry entry, long dataOffset, byte[] out) throws IOException {
+    ByteBuffer compressed = slice(dataOffset, Asset.toIntExact(entry.getCompressedSize()));
+    byte[] chunk = new byte[Math.min(INFLATE_CHUNK_SIZE, compressed.remaining() + 1)];
+    Inflater inflater = new Inflater(true);
+    try {
+      int written = 0;
+      boolean addedDummyByte = false;
+      while (written < out.length) {
+        if (inflater.needsInput()) {
+          if (compressed.hasRemaining()) {
+            int count = Math.min(chunk.length, compressed.remaining());
+            compressed.get(chunk, 0, count);
+            inflater.setInput(chunk, 0, count);
+          } else if (!addedDummyByte) {
+            // Inflater needs an extra byte after the data when reading raw deflate streams.
+            chunk[0] = 0;
+            inflater.setInput(chunk, 0, 1);
+            addedDummyByte = true;
+          } else {
+            break;
+          }
+        }
+        int count = inflater.inflate(out, written, out.length - written);
+        if (count == 0 && (inflater.finished() || inflater.needsDictionary())) {
+          break;
+        }
+        written += count;
+      }
+      if (written < out.length) {
+        throw new ZipException("failed to inflate " + entry.getName() + " in " + fileName);
+      }
+    } catch (DataFormatException e) {
+      throw new ZipException("invalid deflate data for " + entry.getName() + " in " + fileName);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private int findEndOfCentralDirectory() throws ZipException {
+    // The EOCD is followed by a variable-length comment, so scan backwards for its signature.
+    int limit = Math.max(0, mapping.capacity() - ENDHDR - MAX_COMMENT_SIZE);
+    for (int offset = mapping.capacity() - ENDHDR; offset >= limit; offset--) {
+      if (mapping.getInt(offset) == ENDSIG) {
+        return offset;
+      }
+    }
+    throw new ZipException("ZIP directory not found, not a ZIP archive: " + fileName);
+  }
+
+  private int checkedOffset(long offset, int length) throws ZipException {
+    if (offset < 0 || offset + length > mapping.capacity()) {
+      throw new ZipException("invalid offset " + offset + " in " + fileName);
+    }
+    return (int) offset;
+  }
+
+  private int readUnsignedShort(int offset) {
+    return mapping.getShort(offset) & 0xffff;
+  }
+
+  private long readUnsignedInt(int offset) {
+    return mapping.getInt(offset) & 0xffffffffL;
+  }
+
+  private String readString(int offset, int length, Charset charset) {
+    byte[] bytes = new byte[length];
+    ByteBuffer buffer = mapping.duplicate();
+    ((Buffer) buffer).position(offset);
+    buffer.get(bytes);
+    return new String(bytes, charset);
+  }
+
+  /** A weak reference to an open archive that remembers its key in {@code openArchives}. */
+  private static final class ArchiveReference extends WeakReference<ZipArchiveHandle> {
+    final String key;
+
+    ArchiveReference(String key, ZipArchiveHandle archive) {
+      super(archive, collectedArchives);
+      this.key = key;
+    }
   }
 }
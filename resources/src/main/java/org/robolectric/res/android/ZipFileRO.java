@@ -6,11 +6,9 @@ import static org.robolectric.res.android.Errors.NO_ERROR;
 import static org.robolectric.res.android.Util.ALOGW;
 import static org.robolectric.res.android.Util.isTruthy;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.Enumeration;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 public class ZipFileRO {
 
@@ -53,12 +51,7 @@ public class ZipFileRO {
 
   static int OpenArchive(String zipFileName, Ref<ZipArchiveHandle> mHandle) {
     try {
-      File file = new File(zipFileName);
-      // TODO: consider moving away from ZipFile. By using ZipFile and guessDataOffsets, the zip
-      // central directory is being read twice
-      ZipFile zipFile = new ZipFile(file);
-      mHandle.set(
-          new ZipArchiveHandle(zipFile, FileMap.guessDataOffsets(file, (int) file.length())));
+      mHandle.set(ZipArchiveHandle.open(zipFileName));
       return NO_ERROR;
     } catch (IOException e) {
       return NAME_NOT_FOUND;
@@ -74,11 +67,12 @@ public class ZipFileRO {
   }
 
   static int FindEntry(ZipArchiveHandle mHandle, String name, Ref<ZipEntry> zipEntryRef) {
-    ZipEntry entry = mHandle.zipFile.getEntry(name);
-    zipEntryRef.set(entry);
-    if (entry == null) {
+    int index = mHandle.findEntry(name);
+    if (index < 0) {
+      zipEntryRef.set(null);
       return NAME_NOT_FOUND;
     }
+    zipEntryRef.set(mHandle.getEntry(index));
     return NO_ERROR;
   }
 
@@ -117,18 +111,18 @@ public class ZipFileRO {
     ZipEntryRO data = new ZipEntryRO();
     data.name = String(entryName);
 
-    if (mHandle.dataOffsets.get(entryName) == null) {
+    int index = mHandle.findEntry(entryName);
+    if (index < 0) {
       return null;
     }
-    data.dataOffset = mHandle.dataOffsets.get(entryName);
-
-    final Ref<ZipEntry> zipEntryRef = new Ref<>(data.entry);
-    final int error = FindEntry(mHandle, data.name, zipEntryRef);
-    if (isTruthy(error)) {
+    try {
+      data.dataOffset = mHandle.getDataOffset(index);
+    } catch (IOException e) {
+      ALOGW("Error finding %s in %s: %s", entryName, mFileName, e);
       return null;
     }
 
-    data.entry = zipEntryRef.get();
+    data.entry = mHandle.getEntry(index);
     return data;
   }
 
@@ -180,7 +174,7 @@ public class ZipFileRO {
       /* void** */ Ref<Enumeration<? extends ZipEntry>> cookie,
       final String prefix,
       final String suffix) {
-    cookie.set(this.mHandle.zipFile.entries());
+    cookie.set(this.mHandle.entries());
     //    ZipEntryRO* ze = new ZipEntryRO;
     //    String pe(prefix ? prefix : "");
     //    String se(suffix ? suffix : "");
@@ -282,7 +276,7 @@ public class ZipFileRO {
     FileMap newMap = new FileMap();
     if (!newMap.createFromZip(
         mFileName,
-        mHandle.zipFile,
+        mHandle,
         entry.entry,
         entry.dataOffset,
         toIntExact(entry.entry.getCompressedSize()),
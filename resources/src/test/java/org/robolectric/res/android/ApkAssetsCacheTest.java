@@ -0,0 +1,103 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.Asset.AccessMode;
+
+@RunWith(JUnit4.class)
+public final class ApkAssetsCacheTest {
+
+  private final ClassLoader sandbox1 = new ClassLoader() {};
+  private final ClassLoader sandbox2 = new ClassLoader() {};
+  private String path;
+  private long ptr;
+
+  @Before
+  public void setUp() throws Exception {
+    path = Paths.get(getClass().getResource("/binaryresources/resources.ap_").toURI()).toString();
+    ptr = Registries.NATIVE_APK_ASSETS_REGISTRY.register(CppApkAssets.Load(path, false));
+  }
+
+  @After
+  public void tearDown() {
+    ApkAssetsCache.release(sandbox1);
+    ApkAssetsCache.release(sandbox2);
+    // Evict everything, so each test starts with an empty cache.
+    ApkAssetsCache.setBudgetBytes(0);
+    ApkAssetsCache.setBudgetBytes(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void release_keepsUnreferencedEntriesWithinBudget() {
+    ApkAssetsCache.setBudgetBytes(Long.MAX_VALUE);
+    ApkAssetsCache.put(path, false, 28, ptr, sandbox1);
+
+    ApkAssetsCache.release(sandbox1);
+
+    assertThat(ApkAssetsCache.get(path, false, 28, sandbox2)).isEqualTo(ptr);
+    assertThat(Registries.NATIVE_APK_ASSETS_REGISTRY.peekNativeObject(ptr)).isNotNull();
+  }
+
+  @Test
+  public void release_evictsUnreferencedEntriesOverBudget() {
+    ApkAssetsCache.setBudgetBytes(0);
+    ApkAssetsCache.put(path, false, 28, ptr, sandbox1);
+    assertThat(ApkAssetsCache.get(path, false, 28, sandbox2)).isEqualTo(ptr);
+
+    ApkAssetsCache.release(sandbox1);
+    assertThat(Registries.NATIVE_APK_ASSETS_REGISTRY.peekNativeObject(ptr)).isNotNull();
+
+    ApkAssetsCache.release(sandbox2);
+    assertThat(Registries.NATIVE_APK_ASSETS_REGISTRY.peekNativeObject(ptr)).isNull();
+    assertThat(ApkAssetsCache.get(path, false, 28, sandbox1)).isEqualTo(-1L);
+  }
+
+  @Test
+  public void put_keepsExistingEntryWhenAnotherSandboxLoadedItFirst() {
+    long otherPtr = Registries.NATIVE_APK_ASSETS_REGISTRY.register(CppApkAssets.Load(path, false));
+    assertThat(ApkAssetsCache.put(path, false, 28, ptr, sandbox1)).isEqualTo(ptr);
+
+    assertThat(ApkAssetsCache.put(path, false, 28, otherPtr, sandbox2)).isEqualTo(ptr);
+    assertThat(Registries.NATIVE_APK_ASSETS_REGISTRY.peekNativeObject(otherPtr)).isNull();
+
+    ApkAssetsCache.setBudgetBytes(0);
+    ApkAssetsCache.release(sandbox1);
+    assertThat(Registries.NATIVE_APK_ASSETS_REGISTRY.peekNativeObject(ptr)).isNotNull();
+
+    ApkAssetsCache.release(sandbox2);
+    assertThat(Registries.NATIVE_APK_ASSETS_REGISTRY.peekNativeObject(ptr)).isNull();
+  }
+
+  @Test
+  public void release_evictsEntryThatGrewOverBudget() {
+    CppApkAssets apkAssets = Registries.NATIVE_APK_ASSETS_REGISTRY.getNativeObject(ptr);
+    ApkAssetsCache.put(path, false, 28, ptr, sandbox1);
+    ApkAssetsCache.setBudgetBytes(ApkAssetsCache.sizeBytes());
+    ApkAssetsCache.release(sandbox1);
+    assertThat(Registries.NATIVE_APK_ASSETS_REGISTRY.peekNativeObject(ptr)).isNotNull();
+
+    // Parsing an XML file through the ApkAssets caches its tree, which grows the entry.
+    CppAssetManager2 assetManager = new CppAssetManager2();
+    assetManager.SetApkAssets(Collections.singletonList(apkAssets), true);
+    ApkAssetsCookie cookie = ApkAssetsCookie.forInt(0);
+    Asset asset =
+        assetManager.OpenNonAsset("AndroidManifest.xml", cookie, AccessMode.ACCESS_BUFFER);
+    ResXMLTree tree = new ResXMLTree(null);
+    tree.setTo(asset.getBuffer(true), (int) asset.getLength(), true);
+    long sizeBytes = ApkAssetsCache.sizeBytes();
+    assetManager.CacheXmlTree("AndroidManifest.xml", cookie, tree);
+    assertThat(ApkAssetsCache.sizeBytes()).isGreaterThan(sizeBytes);
+
+    ApkAssetsCache.release(sandbox2);
+
+    assertThat(Registries.NATIVE_APK_ASSETS_REGISTRY.peekNativeObject(ptr)).isNull();
+    assertThat(ApkAssetsCache.get(path, false, 28, sandbox1)).isEqualTo(-1L);
+  }
+}
@@ -0,0 +1,296 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.file.Files.newOutputStream;
+import static org.robolectric.res.android.AConfiguration.ACONFIGURATION_DENSITY;
+import static org.robolectric.res.android.AConfiguration.ACONFIGURATION_ORIENTATION;
+import static org.robolectric.res.android.ApkAssetsCookie.K_INVALID_COOKIE;
+import static org.robolectric.res.android.ResourceTypes.RES_TABLE_PACKAGE_TYPE;
+import static org.robolectric.res.android.ResourceTypes.RES_TABLE_TYPE;
+import static org.robolectric.res.android.ResourceTypes.RES_TABLE_TYPE_SPEC_TYPE;
+import static org.robolectric.res.android.ResourceTypes.RES_TABLE_TYPE_TYPE;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.CppAssetManager2.ResolvedBag;
+import org.robolectric.res.android.ResourceTypes.ResChunk_header;
+import org.robolectric.res.android.ResourceTypes.ResStringPool_header;
+import org.robolectric.res.android.ResourceTypes.ResTable_entry;
+import org.robolectric.res.android.ResourceTypes.Res_value;
+
+@RunWith(JUnit4.class)
+public final class CppAssetManager2Test {
+
+  private static final int STYLE = 0x01010000;
+  private static final int INTEGER = 0x01020000;
+  private static final int ATTR = 0x01030000;
+
+  @Test
+  public void getBag_sharesFrameworkBagsBetweenAssetManagers() throws Exception {
+    CppApkAssets framework = loadFramework();
+    ResolvedBag bag = newAssetManager(new ResTable_config(), framework).GetBag(STYLE);
+
+    assertThat(bag).isNotNull();
+    assertThat(newAssetManager(new ResTable_config(), framework).GetBag(STYLE))
+        .isSameInstanceAs(bag);
+  }
+
+  @Test
+  public void getBag_sharesFrameworkBagsAcrossAxesTheyDoNotVaryWith() throws Exception {
+    CppApkAssets framework = loadFramework();
+    ResolvedBag bag = newAssetManager(new ResTable_config(), framework).GetBag(STYLE);
+
+    ResTable_config hdpi = new ResTable_config();
+    hdpi.density = ResTable_config.DENSITY_HIGH;
+    assertThat(newAssetManager(hdpi, framework).GetBag(STYLE)).isSameInstanceAs(bag);
+  }
+
+  @Test
+  public void getBag_doesNotShareFrameworkBagsAcrossAxesTheyVaryWith() throws Exception {
+    CppApkAssets framework = loadFramework();
+    ResolvedBag bag = newAssetManager(new ResTable_config(), framework).GetBag(STYLE);
+
+    ResolvedBag landscapeBag = newAssetManager(landscape(), framework).GetBag(STYLE);
+
+    assertThat(landscapeBag).isNotSameInstanceAs(bag);
+    assertThat(bag.entries[0].value.data).isEqualTo(1);
+    assertThat(landscapeBag.entries[0].value.data).isEqualTo(2);
+  }
+
+  @Test
+  public void getBag_doesNotShareFrameworkBagsWhenAnotherPackageHasTheFrameworkId()
+      throws Exception {
+    CppApkAssets framework = loadFramework();
+    ResolvedBag bag = newAssetManager(new ResTable_config(), framework).GetBag(STYLE);
+
+    // E.g. an overlay, which is added to the framework's package group.
+    CppApkAssets other = loadFramework();
+    ResolvedBag combinedBag =
+        newAssetManager(new ResTable_config(), framework, other).GetBag(STYLE);
+
+    assertThat(combinedBag).isNotSameInstanceAs(bag);
+    assertThat(newAssetManager(new ResTable_config(), framework, other).GetBag(STYLE))
+        .isNotSameInstanceAs(combinedBag);
+  }
+
+  @Test
+  public void getResource_selectsEntryForNewConfiguration() throws Exception {
+    CppAssetManager2 assetManager = newAssetManager(new ResTable_config(), loadFramework());
+    assertThat(getInteger(assetManager, 0)).isEqualTo(10);
+
+    assetManager.SetConfiguration(landscape());
+    assertThat(getInteger(assetManager, 0)).isEqualTo(20);
+
+    assetManager.SetConfiguration(new ResTable_config());
+    assertThat(getInteger(assetManager, 0)).isEqualTo(10);
+  }
+
+  @Test
+  public void getResource_doesNotMemoizeDensityOverride() throws Exception {
+    CppAssetManager2 assetManager = newAssetManager(new ResTable_config(), loadFramework());
+    assertThat(getInteger(assetManager, 0)).isEqualTo(10);
+
+    assertThat(getInteger(assetManager, ResTable_config.DENSITY_HIGH)).isEqualTo(30);
+
+    assertThat(getInteger(assetManager, 0)).isEqualTo(10);
+    assertThat(assetManager.GetConfiguration().density).isEqualTo(0);
+  }
+
+  private static int getInteger(CppAssetManager2 assetManager, int densityOverride) {
+    Ref<Res_value> value = new Ref<>(null);
+    ApkAssetsCookie cookie =
+        assetManager.GetResource(
+            INTEGER, false, (short) densityOverride, value, new Ref<>(null), new Ref<>(0));
+    assertThat(cookie).isNotEqualTo(K_INVALID_COOKIE);
+    return value.get().data;
+  }
+
+  private static CppAssetManager2 newAssetManager(
+      ResTable_config config, CppApkAssets... apkAssets) {
+    CppAssetManager2 assetManager = new CppAssetManager2();
+    assetManager.SetApkAssets(Arrays.asList(apkAssets), true);
+    assetManager.SetConfiguration(config);
+    return assetManager;
+  }
+
+  private static ResTable_config landscape() {
+    ResTable_config config = new ResTable_config();
+    config.orientation = ResTable_config.ORIENTATION_LAND;
+    return config;
+  }
+
+  /**
+   * Loads a framework APK with a style that sets {@link #ATTR} to 1 by default and to 2 in
+   * landscape, and an integer that is 10 by default, 20 in landscape and 30 at high density.
+   */
+  private static CppApkAssets loadFramework() throws Exception {
+    Type style = new Type("style", ACONFIGURATION_ORIENTATION, true);
+    style.add(new ResTable_config(), 1);
+    style.add(landscape(), 2);
+    Type integer =
+        new Type("integer", ACONFIGURATION_ORIENTATION | ACONFIGURATION_DENSITY, false);
+    integer.add(new ResTable_config(), 10);
+    integer.add(landscape(), 20);
+    ResTable_config hdpi = new ResTable_config();
+    hdpi.density = ResTable_config.DENSITY_HIGH;
+    integer.add(hdpi, 30);
+    return CppApkAssets.Load(writeApk(writeTable(style, integer)).getPath(), true);
+  }
+
+  /** A type with a single entry, which is either a bag that only sets {@link #ATTR} or an int. */
+  private static final class Type {
+    final String name;
+    final int specFlags;
+    final boolean bag;
+    final List<ResTable_config> configs = new ArrayList<>();
+    final List<Integer> values = new ArrayList<>();
+
+    Type(String name, int specFlags, boolean bag) {
+      this.name = name;
+      this.specFlags = specFlags;
+      this.bag = bag;
+    }
+
+    void add(ResTable_config config, int value) {
+      configs.add(config);
+      values.add(value);
+    }
+  }
+
+  /** Writes a resource table with a single framework package that contains {@code types}. */
+  private static ByteBuffer writeTable(Type... types) {
+    ByteBuffer buf = ByteBuffer.allocate(8192).order(ByteOrder.LITTLE_ENDIAN);
+    ResChunk_header.write(
+        buf,
+        (short) RES_TABLE_TYPE,
+        () -> buf.putInt(1), // ResTable_header.packageCount
+        () -> {
+          new ResStringPool_header.Writer().write(buf);
+          writePackage(buf, types);
+        });
+    buf.flip();
+    return buf;
+  }
+
+  private static void writePackage(ByteBuffer buf, Type... types) {
+    int start = buf.position();
+    int[] stringOffsetPositions = new int[2];
+    ResChunk_header.write(
+        buf,
+        (short) RES_TABLE_PACKAGE_TYPE,
+        () -> {
+          buf.putInt(LoadedArsc.kFrameworkPackageId); // ResTable_package.id
+          String name = "android";
+          for (int i = 0; i < 128; i++) {
+            buf.putChar(i < name.length() ? name.charAt(i) : '\0'); // ResTable_package.name
+          }
+          stringOffsetPositions[0] = buf.position();
+          buf.putInt(0); // ResTable_package.typeStrings
+          buf.putInt(0); // ResTable_package.lastPublicType
+          stringOffsetPositions[1] = buf.position();
+          buf.putInt(0); // ResTable_package.keyStrings
+          buf.putInt(0); // ResTable_package.lastPublicKey
+          buf.putInt(0); // ResTable_package.typeIdOffset
+        },
+        () -> {
+          buf.putInt(stringOffsetPositions[0], buf.position() - start);
+          ResStringPool_header.Writer typeStrings = new ResStringPool_header.Writer();
+          for (Type type : types) {
+            typeStrings.string(type.name);
+          }
+          typeStrings.write(buf);
+          buf.putInt(stringOffsetPositions[1], buf.position() - start);
+          ResStringPool_header.Writer keyStrings = new ResStringPool_header.Writer();
+          keyStrings.string("entry");
+          keyStrings.write(buf);
+
+          for (int i = 0; i < types.length; i++) {
+            writeType(buf, i + 1, types[i]);
+          }
+        });
+  }
+
+  private static void writeType(ByteBuffer buf, int id, Type type) {
+    ResChunk_header.write(
+        buf,
+        (short) RES_TABLE_TYPE_SPEC_TYPE,
+        () -> {
+          buf.put((byte) id); // ResTable_typeSpec.id
+          buf.put((byte) 0); // ResTable_typeSpec.res0
+          buf.putShort((short) 0); // ResTable_typeSpec.res1
+          buf.putInt(1); // ResTable_typeSpec.entryCount
+        },
+        () -> buf.putInt(type.specFlags));
+
+    for (int i = 0; i < type.configs.size(); i++) {
+      ResTable_config config = type.configs.get(i);
+      int value = type.values.get(i);
+      ResChunk_header.write(
+          buf,
+          (short) RES_TABLE_TYPE_TYPE,
+          () -> {
+            buf.put((byte) id); // ResTable_type.id
+            buf.put((byte) 0); // ResTable_type.flags
+            buf.putShort((short) 0); // ResTable_type.reserved
+            buf.putInt(1); // ResTable_type.entryCount
+            buf.putInt(ResChunk_header.SIZEOF + 12 + 28 + 4); // ResTable_type.entriesStart
+            // ResTable_type.config, up to and including its version.
+            buf.putInt(28); // size
+            buf.putInt(0); // mcc, mnc
+            buf.putInt(0); // language, country
+            buf.put((byte) config.orientation);
+            buf.put((byte) 0); // touchscreen
+            buf.putShort((short) config.density);
+            buf.putInt(0); // keyboard, navigation, inputFlags, inputPad0
+            buf.putInt(0); // screenWidth, screenHeight
+            buf.putInt(0); // sdkVersion, minorVersion
+          },
+          () -> {
+            buf.putInt(0); // Offset of the only entry.
+            if (type.bag) {
+              buf.putShort((short) 16); // ResTable_map_entry.size
+              buf.putShort((short) ResTable_entry.FLAG_COMPLEX); // ResTable_map_entry.flags
+              buf.putInt(0); // ResTable_map_entry.key
+              buf.putInt(0); // ResTable_map_entry.parent
+              buf.putInt(1); // ResTable_map_entry.count
+              buf.putInt(ATTR); // ResTable_map.name
+              Res_value.write(buf, Res_value.TYPE_INT_DEC, value); // ResTable_map.value
+            } else {
+              buf.putShort((short) 8); // ResTable_entry.size
+              buf.putShort((short) 0); // ResTable_entry.flags
+              buf.putInt(0); // ResTable_entry.key
+              Res_value.write(buf, Res_value.TYPE_INT_DEC, value);
+            }
+          });
+    }
+  }
+
+  private static File writeApk(ByteBuffer table) throws Exception {
+    byte[] contents = new byte[table.remaining()];
+    table.get(contents);
+    File apk = File.createTempFile("framework", ".apk");
+    apk.deleteOnExit();
+    try (ZipOutputStream zip = new ZipOutputStream(newOutputStream(apk.toPath()))) {
+      ZipEntry entry = new ZipEntry("resources.arsc");
+      entry.setMethod(ZipEntry.STORED);
+      CRC32 crc = new CRC32();
+      crc.update(contents);
+      entry.setSize(contents.length);
+      entry.setCrc(crc.getValue());
+      zip.putNextEntry(entry);
+      zip.write(contents);
+      zip.closeEntry();
+    }
+    return apk;
+  }
+}
@@ -0,0 +1,85 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class NativeObjRegistryTest {
+
+  private final NativeObjRegistry<String> registry = new NativeObjRegistry<>("test");
+
+  @Test
+  public void register_assignsIncreasingIds() {
+    long first = registry.register("first");
+    long second = registry.register("second");
+
+    assertThat(first).isEqualTo(1);
+    assertThat(second).isEqualTo(2);
+    assertThat(registry.getNativeObject(first)).isEqualTo("first");
+    assertThat(registry.getNativeObject(second)).isEqualTo("second");
+    assertThat(registry.size()).isEqualTo(2);
+    assertThrows(IllegalStateException.class, () -> registry.register("first"));
+  }
+
+  @Test
+  public void unregister_doesNotReuseIds() {
+    long id = registry.register("object");
+    assertThat(registry.unregister(id)).isEqualTo("object");
+
+    long newId = registry.register("object");
+
+    assertThat(newId).isNotEqualTo(id);
+    assertThat(registry.peekNativeObject(id)).isNull();
+    NullPointerException e =
+        assertThrows(NullPointerException.class, () -> registry.getNativeObject(id));
+    assertThat(e).hasMessageThat().contains("already unregistered");
+    assertThrows(IllegalStateException.class, () -> registry.unregister(id));
+  }
+
+  @Test
+  public void lookup_worksAcrossManyRegistrations() {
+    long pinned = registry.register("pinned");
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      ids.add(registry.register("object" + i));
+      if (i % 3 != 0) {
+        registry.unregister(ids.get(i));
+      }
+    }
+
+    assertThat(registry.getNativeObject(pinned)).isEqualTo("pinned");
+    for (int i = 0; i < ids.size(); i++) {
+      assertThat(registry.peekNativeObject(ids.get(i))).isEqualTo(i % 3 == 0 ? "object" + i : null);
+    }
+    assertThat(registry.size()).isEqualTo(1 + 3334);
+  }
+
+  @Test
+  public void update_replacesObject() {
+    long id = registry.register("before");
+
+    registry.update(id, "after");
+
+    assertThat(registry.getNativeObject(id)).isEqualTo("after");
+    assertThrows(IllegalStateException.class, () -> registry.register("after"));
+    assertThat(registry.register("before")).isNotEqualTo(id);
+    assertThrows(IllegalStateException.class, () -> registry.update(id + 100, "other"));
+  }
+
+  @Test
+  public void clear_resetsIds() {
+    long id = registry.register("object");
+
+    registry.clear();
+
+    assertThat(registry.size()).isEqualTo(0);
+    assertThat(registry.peekNativeObject(id)).isNull();
+    assertThat(registry.register("object")).isEqualTo(id);
+  }
+}
@@ -0,0 +1,57 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.res.android.Errors.NO_ERROR;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.ResourceTypes.ResStringPool_header;
+
+@RunWith(JUnit4.class)
+public final class ResStringPoolTest {
+
+  @Test
+  public void stringAt_reusesDecodedStrings() {
+    ResStringPool pool = newPool("colorPrimary", "ab©");
+
+    String first = pool.stringAt(0);
+
+    assertThat(first).isEqualTo("colorPrimary");
+    assertThat(pool.stringAt(0)).isSameInstanceAs(first);
+    assertThat(pool.stringAt(1)).isEqualTo("ab©");
+    assertThat(pool.stringAt(2)).isNull();
+    assertThat(pool.stringAt(-1)).isNull();
+  }
+
+  @Test
+  public void setTo_discardsDecodedStrings() {
+    ResStringPool pool = newPool("old");
+    assertThat(pool.stringAt(0)).isEqualTo("old");
+
+    ByteBuffer buf = write("new");
+    assertThat(pool.setTo(buf, 0, buf.limit(), false)).isEqualTo(NO_ERROR);
+
+    assertThat(pool.stringAt(0)).isEqualTo("new");
+  }
+
+  private static ResStringPool newPool(String... strings) {
+    ByteBuffer buf = write(strings);
+    ResStringPool pool = new ResStringPool();
+    assertThat(pool.setTo(buf, 0, buf.limit(), false)).isEqualTo(NO_ERROR);
+    return pool;
+  }
+
+  private static ByteBuffer write(String... strings) {
+    ByteBuffer buf = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+    ResStringPool_header.Writer writer = new ResStringPool_header.Writer();
+    for (String string : strings) {
+      writer.string(string);
+    }
+    writer.write(buf);
+    buf.flip();
+    return buf;
+  }
+}
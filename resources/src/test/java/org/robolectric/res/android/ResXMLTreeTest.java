@@ -0,0 +1,73 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.res.android.Errors.NO_ERROR;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.ResXMLParser.event_code_t;
+
+@RunWith(JUnit4.class)
+public final class ResXMLTreeTest {
+
+  private static final String MANIFEST = "AndroidManifest.xml";
+  private static final ApkAssetsCookie COOKIE = ApkAssetsCookie.forInt(0);
+
+  private CppAssetManager2 assetManager;
+
+  @Before
+  public void setUp() throws Exception {
+    String path =
+        Paths.get(getClass().getResource("/binaryresources/resources.ap_").toURI()).toString();
+    assetManager = new CppAssetManager2();
+    assetManager.SetApkAssets(Collections.singletonList(CppApkAssets.Load(path, false)), true);
+  }
+
+  @Test
+  public void openCachedXmlTree_returnsViewOfCachedTree() {
+    assertThat(assetManager.OpenCachedXmlTree(MANIFEST, COOKIE)).isNull();
+    ResXMLTree tree = parse(MANIFEST);
+
+    assetManager.CacheXmlTree(MANIFEST, COOKIE, tree);
+    ResXMLTree view = assetManager.OpenCachedXmlTree(MANIFEST, COOKIE);
+
+    assertThat(view).isNotSameInstanceAs(tree);
+    assertThat(view.getError()).isEqualTo(NO_ERROR);
+    assertThat(view.getStrings()).isSameInstanceAs(tree.getStrings());
+    assertThat(rootElementName(view)).isEqualTo("manifest");
+    assertThat(assetManager.OpenCachedXmlTree(MANIFEST, ApkAssetsCookie.forInt(1))).isNull();
+  }
+
+  @Test
+  public void setTo_leavesViewsIntact() {
+    ResXMLTree tree = parse(MANIFEST);
+    assetManager.CacheXmlTree(MANIFEST, COOKIE, tree);
+    ResXMLTree view = assetManager.OpenCachedXmlTree(MANIFEST, COOKIE);
+
+    tree.setTo(new byte[0], 0, false);
+
+    assertThat(rootElementName(view)).isEqualTo("manifest");
+  }
+
+  private ResXMLTree parse(String fileName) {
+    Asset asset = assetManager.OpenNonAsset(fileName, COOKIE, Asset.AccessMode.ACCESS_RANDOM);
+    ResXMLTree tree = new ResXMLTree(null);
+    assertThat(tree.setTo(asset.getBuffer(true), (int) asset.getLength(), true))
+        .isEqualTo(NO_ERROR);
+    return tree;
+  }
+
+  private static String rootElementName(ResXMLTree tree) {
+    ResXMLParser parser = new ResXMLParser(tree);
+    parser.restart();
+    int code;
+    do {
+      code = parser.next();
+    } while (code != event_code_t.START_TAG && code != event_code_t.END_DOCUMENT);
+    return tree.getStrings().stringAt(parser.getElementNameID());
+  }
+}
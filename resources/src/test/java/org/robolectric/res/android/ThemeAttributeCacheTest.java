@@ -0,0 +1,79 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.res.android.AttributeResolution10.STYLE_NUM_ENTRIES;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ThemeAttributeCacheTest {
+
+  private static final int[] ATTRS = {0x7f010000, 0x7f010001};
+
+  private final ThemeAttributeCache cache = new ThemeAttributeCache();
+
+  @Test
+  public void get_returnsResultForEqualInputs() {
+    ThemeAttributeCache.Result result =
+        cache.put(newKey(0x7f020000, ATTRS.clone()), 0, 0, new int[14], new int[] {0, 0, 0});
+
+    assertThat(cache.get(newKey(0x7f020000, ATTRS.clone()), 0, 0)).isSameInstanceAs(result);
+    assertThat(cache.get(newKey(0x7f020001, ATTRS.clone()), 0, 0)).isNull();
+    assertThat(cache.get(newKey(0x7f020000, new int[] {0x7f010000}), 0, 0)).isNull();
+  }
+
+  @Test
+  public void get_distinguishesXmlValues() {
+    int[] xmlValues = {-1, 0, 0x10, 1, -1, 0};
+    ThemeAttributeCache.Result result =
+        cache.put(newKey(0, xmlValues.clone(), ATTRS), 0, 0, new int[14], new int[] {0, 0, 0});
+
+    assertThat(cache.get(newKey(0, xmlValues.clone(), ATTRS), 0, 0)).isSameInstanceAs(result);
+    assertThat(cache.get(newKey(0, new int[] {-1, 0, 0x10, 2, -1, 0}, ATTRS), 0, 0)).isNull();
+    assertThat(cache.get(newKey(0, null, ATTRS), 0, 0)).isNull();
+  }
+
+  @Test
+  public void get_discardsResultsWhenThemeOrAssetManagerChanges() {
+    ThemeAttributeCache.Key key = newKey(0x7f020000, ATTRS);
+    assertThat(cache.get(key, 0, 0)).isNull();
+    cache.put(key, 0, 0, new int[14], new int[] {0, 0, 0});
+
+    assertThat(cache.get(key, 1, 0)).isNull();
+    cache.put(key, 1, 0, new int[14], new int[] {0, 0, 0});
+    assertThat(cache.get(key, 1, 0)).isNotNull();
+
+    assertThat(cache.get(key, 1, 1)).isNull();
+  }
+
+  @Test
+  public void copyTo_onlyWritesRequestedColumns() {
+    int[] values = new int[2 * STYLE_NUM_ENTRIES];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i + 1;
+    }
+    ThemeAttributeCache.Result result =
+        cache.put(newKey(0x7f020000, ATTRS), 0, 0, values, new int[] {1, 1, 0});
+
+    int[] outValues = new int[2 * STYLE_NUM_ENTRIES];
+    int[] outIndices = new int[] {-1, -1, -1};
+    result.copyTo(outValues, outIndices, STYLE_NUM_ENTRIES - 1);
+
+    assertThat(outValues)
+        .asList()
+        .containsExactly(1, 2, 3, 4, 5, 6, 0, 8, 9, 10, 11, 12, 13, 0)
+        .inOrder();
+    assertThat(outIndices).asList().containsExactly(1, 1, -1).inOrder();
+  }
+
+  private static ThemeAttributeCache.Key newKey(int defStyleRes, int[] attrs) {
+    return newKey(defStyleRes, null, attrs);
+  }
+
+  private static ThemeAttributeCache.Key newKey(int defStyleRes, int[] xmlValues, int[] attrs) {
+    return new ThemeAttributeCache.Key(
+        true, 0, defStyleRes, null, 0, xmlValues, attrs, attrs.length);
+  }
+}
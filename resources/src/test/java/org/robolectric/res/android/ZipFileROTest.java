@@ -1,6 +1,7 @@
 package org.robolectric.res.android;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.Files.newOutputStream;
 
 import com.google.common.io.ByteStreams;
@@ -9,6 +10,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import org.junit.Test;
@@ -58,6 +61,101 @@ public final class ZipFileROTest {
     assertThat(fileMap.getDataOffset()).isEqualTo(0x64);
   }
 
+  @Test
+  public void createEntryFileMap_mapsStoredEntries() throws Exception {
+    File blob = File.createTempFile("prefix", "zip");
+    try (InputStream input = getClass().getResourceAsStream("/zip_with_gap.zip");
+        FileOutputStream output = new FileOutputStream(blob)) {
+      ByteStreams.copy(input, output);
+    }
+
+    ZipFileRO zipFile = ZipFileRO.open(blob.toString());
+    FileMap fileMap = zipFile.createEntryFileMap(zipFile.findEntryByName("f1"));
+    ByteBuffer mapped = fileMap.getMappedData();
+
+    assertThat(mapped.isDirect()).isTrue();
+    byte[] contents = new byte[mapped.remaining()];
+    mapped.get(contents);
+    assertThat(new String(contents, UTF_8)).isEqualTo("bar\n");
+  }
+
+  @Test
+  public void createEntryFileMap_doesNotMapDeflatedEntries() throws Exception {
+    File blob = File.createTempFile("prefix", "zip");
+    try (ZipOutputStream zip = new ZipOutputStream(newOutputStream(blob.toPath()))) {
+      zip.putNextEntry(new ZipEntry("f0"));
+      zip.write("foo\n".getBytes(UTF_8));
+      zip.closeEntry();
+    }
+
+    ZipFileRO zipFile = ZipFileRO.open(blob.toString());
+    FileMap fileMap = zipFile.createEntryFileMap(zipFile.findEntryByName("f0"));
+
+    assertThat(fileMap.getMappedData()).isNull();
+    assertThat(new String(fileMap.getDataPtr(), UTF_8)).isEqualTo("foo\n");
+  }
+
+  @Test
+  public void createEntryFileMap_inflatesLargeDeflatedEntries() throws Exception {
+    byte[] contents = new byte[300_000];
+    for (int i = 0; i < contents.length; i++) {
+      contents[i] = (byte) (i * 31 + (i >> 7));
+    }
+    File blob = File.createTempFile("prefix", "zip");
+    try (ZipOutputStream zip = new ZipOutputStream(newOutputStream(blob.toPath()))) {
+      zip.putNextEntry(new ZipEntry("big"));
+      zip.write(contents);
+      zip.closeEntry();
+    }
+
+    ZipFileRO zipFile = ZipFileRO.open(blob.toString());
+    FileMap fileMap = zipFile.createEntryFileMap(zipFile.findEntryByName("big"));
+
+    assertThat(fileMap.getDataPtr()).isEqualTo(contents);
+  }
+
+  @Test
+  public void open_sharesArchiveBetweenInstances() throws Exception {
+    File blob = File.createTempFile("prefix", "zip");
+    try (ZipOutputStream zip = new ZipOutputStream(newOutputStream(blob.toPath()))) {
+      zip.putNextEntry(new ZipEntry("f0"));
+      zip.closeEntry();
+    }
+
+    ZipFileRO first = ZipFileRO.open(blob.toString());
+    ZipFileRO second = ZipFileRO.open(blob.toString());
+
+    assertThat(second.mHandle).isSameInstanceAs(first.mHandle);
+  }
+
+  @Test
+  public void findEntryByName_decodesNamesWithUtf8Flag() throws Exception {
+    File blob = File.createTempFile("prefix", "zip");
+    // ZipOutputStream sets the UTF-8 flag when it encodes names as UTF-8.
+    try (ZipOutputStream zip = new ZipOutputStream(newOutputStream(blob.toPath()), UTF_8)) {
+      zip.putNextEntry(new ZipEntry("caf\u00e9"));
+      zip.closeEntry();
+    }
+
+    ZipFileRO zipFile = ZipFileRO.open(blob.toString());
+
+    assertThat(zipFile.findEntryByName("caf\u00e9")).isNotNull();
+  }
+
+  @Test
+  public void findEntryByName_decodesNamesWithoutUtf8FlagAsCp437() throws Exception {
+    File blob = File.createTempFile("prefix", "zip");
+    try (ZipOutputStream zip =
+        new ZipOutputStream(newOutputStream(blob.toPath()), Charset.forName("IBM437"))) {
+      zip.putNextEntry(new ZipEntry("caf\u00e9"));
+      zip.closeEntry();
+    }
+
+    ZipFileRO zipFile = ZipFileRO.open(blob.toString());
+
+    assertThat(zipFile.findEntryByName("caf\u00e9")).isNotNull();
+  }
+
   @Test
   public void open_emptyZip() throws Exception {
     // ensure ZipFileRO cam handle an empty zip file with no central directory
@@ -1,11 +1,11 @@
 package org.robolectric.android.internal;
 
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
-import static org.robolectric.Shadows.shadowOf;
 import static org.robolectric.shadows.ShadowLooper.shadowMainLooper;
 
 import android.annotation.SuppressLint;
@@ -22,7 +22,10 @@ import androidx.test.platform.ui.InjectEventSecurityException;
 import androidx.test.platform.ui.UiController;
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -30,8 +33,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import org.robolectric.annotation.LooperMode;
 import org.robolectric.shadow.api.Shadow;
@@ -46,7 +47,6 @@ public class LocalUiController implements UiController {
 
   private static long idlingResourceErrorTimeoutMs = SECONDS.toMillis(26);
   private final HashSet<IdlingResourceProxyImpl> syncedIdlingResources = new HashSet<>();
-  private final ExecutorService looperIdlingExecutor = Executors.newCachedThreadPool();
 
   /**
    * Sets the error timeout for idling resources.
@@ -298,14 +298,16 @@ public class LocalUiController implements UiController {
     }
   }
 
-  private final class LooperIdlingResource implements IdlingResourceProxy {
+  private static final class LooperIdlingResource implements IdlingResourceProxy {
     private final Looper looper;
-    private final ShadowLooper shadowLooper;
+    private final ShadowPausedLooper shadowLooper;
     private Runnable idleCallback;
+    // The exception that idling the looper failed with, rethrown on the main thread.
+    private Throwable failure;
 
     LooperIdlingResource(Looper looper) {
       this.looper = looper;
-      this.shadowLooper = shadowOf(looper);
+      this.shadowLooper = Shadow.extract(looper);
     }
 
     @Override
@@ -315,28 +317,42 @@ public class LocalUiController implements UiController {
 
     @Override
     public synchronized void notifyOnIdle(Runnable idleCallback) {
+      if (failure != null) {
+        Throwables.throwIfUnchecked(failure);
+        throw new RuntimeException(failure);
+      }
       if (shadowLooper.isIdle()) {
         this.idleCallback = null;
         idleCallback.run();
       } else {
         this.idleCallback = idleCallback;
-        // Note idle() doesn't throw an exception if called from another thread, the looper would
-        // die with an unhandled exception.
-        // TODO(paulsowden): It's not technically necessary to idle the looper from another thread,
-        //  it can be idled from its own thread, however we'll need API access to do this and
-        //  observe the idle state--the idle() api blocks the calling thread by default. Perhaps a
-        //  ListenableFuture idleAsync() variant?
-        looperIdlingExecutor.execute(this::idleLooper);
+        // Idle the looper on its own thread. If a message throws, the failure is recorded and the
+        // callback is run anyway, so that the main thread wakes up and rethrows it from the next
+        // notifyOnIdle() instead of waiting for the idling resource timeout.
+        Futures.addCallback(
+            shadowLooper.idleAsync(),
+            new FutureCallback<Void>() {
+              @Override
+              public void onSuccess(Void result) {
+                onLooperIdle();
+              }
+
+              @Override
+              public void onFailure(Throwable t) {
+                synchronized (LooperIdlingResource.this) {
+                  failure = t;
+                }
+                onLooperIdle();
+              }
+            },
+            directExecutor());
       }
     }
 
-    private void idleLooper() {
-      shadowLooper.idle();
-      synchronized (this) {
-        if (idleCallback != null) {
-          idleCallback.run();
-          idleCallback = null;
-        }
+    private synchronized void onLooperIdle() {
+      if (idleCallback != null) {
+        idleCallback.run();
+        idleCallback = null;
       }
     }
   }
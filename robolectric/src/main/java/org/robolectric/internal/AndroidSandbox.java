@@ -20,6 +20,7 @@ import org.robolectric.internal.bytecode.SandboxClassLoader;
 import org.robolectric.internal.bytecode.ShadowProviders;
 import org.robolectric.internal.bytecode.UrlResourceProvider;
 import org.robolectric.pluginapi.Sdk;
+import org.robolectric.res.android.ApkAssetsCache;
 import org.robolectric.shadows.SQLiteShadowPicker;
 import org.robolectric.util.inject.Injector;
 
@@ -84,6 +85,13 @@ public class AndroidSandbox extends Sandbox {
     return testEnvironment;
   }
 
+  @Override
+  public void shutdown() {
+    super.shutdown();
+    // Lets the cross-sandbox ApkAssets cache evict resources that only this sandbox was using.
+    ApkAssetsCache.release(getRobolectricClassLoader());
+  }
+
   @Override
   public String toString() {
     return "AndroidSandbox[SDK " + sdk + "]";
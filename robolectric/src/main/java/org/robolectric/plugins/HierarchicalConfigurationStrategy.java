@@ -22,7 +22,10 @@ import org.robolectric.util.PerfStatsCollector;
 @Priority(Integer.MIN_VALUE)
 public class HierarchicalConfigurationStrategy implements ConfigurationStrategy {
 
-  /** The cache is sized to avoid repeated resolutions for any node. */
+  /**
+   * The cache for test class and method nodes is sized to avoid repeated resolutions for any node
+   * while resolving a single test.
+   */
   private int highWaterMark = 0;
 
   private final Map<String, Object[]> cache =
@@ -33,6 +36,14 @@ public class HierarchicalConfigurationStrategy implements ConfigurationStrategy
         }
       };
 
+  /**
+   * Package-level configs don't depend on the test class being run and there are comparatively few
+   * packages, so they are kept for the lifetime of this strategy rather than being evicted along
+   * with class and method nodes. Otherwise every test class in a different package would walk and
+   * re-resolve the whole package hierarchy again.
+   */
+  private final Map<String, Object[]> packageCache = new HashMap<>();
+
   private final Configurer<?>[] configurers;
   private final Object[] defaultConfigs;
 
@@ -86,20 +97,19 @@ public class HierarchicalConfigurationStrategy implements ConfigurationStrategy
   }
 
   private Object[] getPackageConfig(String packageName, Counter counter) {
-    return cache(
-        packageName,
-        counter,
-        s -> {
-          Object[] packageConfigs =
-              getConfigs(counter, configurer -> configurer.getConfigFor(packageName));
-          String parentPackage = parentPackage(packageName);
-          if (parentPackage == null) {
-            return merge(defaultConfigs, packageConfigs);
-          } else {
-            Object[] packageConfig = getPackageConfig(parentPackage, counter);
-            return merge(packageConfig, packageConfigs);
-          }
-        });
+    Object[] configs = packageCache.get(packageName);
+    if (configs == null) {
+      Object[] packageConfigs =
+          getConfigs(counter, configurer -> configurer.getConfigFor(packageName));
+      String parentPackage = parentPackage(packageName);
+      if (parentPackage == null) {
+        configs = merge(defaultConfigs, packageConfigs);
+      } else {
+        configs = merge(getPackageConfig(parentPackage, counter), packageConfigs);
+      }
+      packageCache.put(packageName, configs);
+    }
+    return configs;
   }
 
   private String parentPackage(String name) {
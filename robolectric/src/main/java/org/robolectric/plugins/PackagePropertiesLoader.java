@@ -2,9 +2,10 @@ package org.robolectric.plugins;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nonnull;
 import org.robolectric.pluginapi.config.Configurer;
 
@@ -19,16 +20,11 @@ import org.robolectric.pluginapi.config.Configurer;
 public class PackagePropertiesLoader {
 
   /**
-   * We should get very high cache hit rates even with a tiny cache if we're called sequentially by
-   * multiple {@link Configurer}s for the same package.
+   * Properties files are looked up once per package for the lifetime of this loader, which is
+   * usually the whole test run. Packages without a properties file (the common case) are cached as
+   * well, since an unsuccessful lookup has to search the entire classpath.
    */
-  private final Map<String, Properties> cache =
-      new LinkedHashMap<String, Properties>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<String, Properties> eldest) {
-          return size() > 3;
-        }
-      };
+  private final Map<String, Optional<Properties>> cache = new ConcurrentHashMap<>();
 
   private Properties getConfig(@Nonnull String packageName, String propFileName) {
     StringBuilder buf = new StringBuilder();
@@ -37,20 +33,20 @@ public class PackagePropertiesLoader {
       buf.append('/');
     }
     String propsFile = buf + propFileName + ".properties";
-    return cache.computeIfAbsent(
-        propsFile,
-        s -> {
-          try (InputStream resourceAsStream = getResourceAsStream(propsFile)) {
-            if (resourceAsStream == null) {
-              return null;
-            }
-            Properties properties = new Properties();
-            properties.load(resourceAsStream);
-            return properties;
-          } catch (IOException e) {
-            throw new RuntimeException(e);
-          }
-        });
+    return cache.computeIfAbsent(propsFile, this::loadProperties).orElse(null);
+  }
+
+  private Optional<Properties> loadProperties(String propsFile) {
+    try (InputStream resourceAsStream = getResourceAsStream(propsFile)) {
+      if (resourceAsStream == null) {
+        return Optional.empty();
+      }
+      Properties properties = new Properties();
+      properties.load(resourceAsStream);
+      return Optional.of(properties);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
   }
 
   /**
@@ -1,11 +1,14 @@
 package org.robolectric.android.util.concurrent;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static org.junit.Assert.fail;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import org.junit.Before;
@@ -187,4 +190,31 @@ public class PausedExecutorServiceTest {
 
     assertThat(executedTasksRecord).containsExactly("first", "second", "third").inOrder();
   }
+
+  @Test
+  public void runAll_withParallelism_completesFuturesInQueueOrder() throws Exception {
+    PausedExecutorService parallelService = new PausedExecutorService(4);
+    CountDownLatch allStarted = new CountDownLatch(4);
+    List<Integer> completionOrder = new ArrayList<>();
+    List<ListenableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      int task = i;
+      ListenableFuture<Integer> future =
+          (ListenableFuture<Integer>)
+              parallelService.submit(
+                  () -> {
+                    // Only returns if all tasks are running at the same time.
+                    allStarted.countDown();
+                    assertThat(allStarted.await(5, TimeUnit.SECONDS)).isTrue();
+                    return task;
+                  });
+      future.addListener(() -> completionOrder.add(task), directExecutor());
+      futures.add(future);
+    }
+
+    assertThat(parallelService.runAll()).isEqualTo(4);
+    assertThat(completionOrder).containsExactly(0, 1, 2, 3).inOrder();
+    assertThat(futures.get(3).get()).isEqualTo(3);
+    parallelService.shutdown();
+  }
 }
@@ -66,6 +66,22 @@ public class InstrumentationConfigurationTest {
     assertThat(config.shouldAcquire("android.R$anything$else")).isTrue();
   }
 
+  @Test
+  public void shouldAcquireFrameworkRClasses_evenInExcludedPackages() {
+    InstrumentationConfiguration config =
+        InstrumentationConfiguration.newBuilder()
+            .doNotAcquirePackage("android.")
+            .doNotAcquirePackage("com.android.")
+            .build();
+    assertThat(config.shouldAcquire("android.R")).isTrue();
+    assertThat(config.shouldAcquire("android.R$id")).isTrue();
+    assertThat(config.shouldAcquire("com.android.internal.R")).isTrue();
+    assertThat(config.shouldAcquire("com.android.internal.R$styleable")).isTrue();
+    assertThat(config.shouldAcquire("android.R$")).isFalse();
+    assertThat(config.shouldAcquire("android.Rfoo")).isFalse();
+    assertThat(config.shouldAcquire("com.android.internal.Rfoo")).isFalse();
+  }
+
   @Test
   public void shouldAcquireRClasses() {
     assertThat(config.shouldAcquire("com.whatever.Rfoo")).isTrue();
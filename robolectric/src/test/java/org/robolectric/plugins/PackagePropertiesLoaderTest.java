@@ -0,0 +1,49 @@
+package org.robolectric.plugins;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PackagePropertiesLoaderTest {
+
+  private final List<String> requestedResources = new ArrayList<>();
+
+  private final PackagePropertiesLoader loader =
+      new PackagePropertiesLoader() {
+        @Override
+        InputStream getResourceAsStream(String resourceName) {
+          requestedResources.add(resourceName);
+          if (resourceName.equals("com/example/robolectric.properties")) {
+            return new ByteArrayInputStream("sdk=28".getBytes(UTF_8));
+          }
+          return null;
+        }
+      };
+
+  @Test
+  public void getConfigProperties_readsEachPropertiesFileOnce() {
+    assertThat(loader.getConfigProperties("com.example").getProperty("sdk")).isEqualTo("28");
+    assertThat(loader.getConfigProperties("com.example").getProperty("sdk")).isEqualTo("28");
+
+    assertThat(requestedResources).containsExactly("com/example/robolectric.properties");
+  }
+
+  @Test
+  public void getConfigProperties_remembersMissingPropertiesFiles() {
+    assertThat(loader.getConfigProperties("com.other")).isNull();
+    assertThat(loader.getConfigProperties("")).isNull();
+    assertThat(loader.getConfigProperties("com.other")).isNull();
+    assertThat(loader.getConfigProperties("")).isNull();
+
+    assertThat(requestedResources)
+        .containsExactly("com/other/robolectric.properties", "robolectric.properties");
+  }
+}
@@ -9,12 +9,15 @@ import android.view.Choreographer;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import java.time.Duration;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.junit.rules.SetSystemPropertyRule;
+import org.robolectric.pluginapi.perf.Metric;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.util.PerfStatsCollector;
 
 /** Unit tests for {@link ShadowChoreographer}. */
 @RunWith(AndroidJUnit4.class)
@@ -87,6 +90,31 @@ public class ShadowChoreographerTest {
     assertThat(frameTimeNanos.get()).isEqualTo(startTime + 15_100_000);
   }
 
+  @Test
+  public void setPaused_isPaused_coalescesFramesWhenClockAdvancedSeveralFrameDelays() {
+    PerfStatsCollector.getInstance().setEnabled(true);
+    ShadowChoreographer.setPaused(true);
+    ShadowChoreographer.setFrameDelay(Duration.ofMillis(15));
+    AtomicInteger frameCount = new AtomicInteger();
+    Choreographer.FrameCallback callback =
+        new Choreographer.FrameCallback() {
+          @Override
+          public void doFrame(long frameTimeNanos) {
+            frameCount.incrementAndGet();
+            // Like an animation, request the next frame from each one.
+            Choreographer.getInstance().postFrameCallback(this);
+          }
+        };
+
+    Choreographer.getInstance().postFrameCallback(callback);
+    ShadowSystemClock.advanceBy(Duration.ofMillis(75));
+    ShadowLooper.idleMainLooper();
+
+    // The frame was due after 15ms, and the 4 frame delays after it were folded into that frame.
+    assertThat(frameCount.get()).isEqualTo(1);
+    assertThat(metricCount("Choreographer.vsyncsCoalesced")).isEqualTo(4);
+  }
+
   @Test
   public void setPaused_isNotPaused_advancesClockAndRuns() {
     ShadowChoreographer.setPaused(false);
@@ -128,6 +156,13 @@ public class ShadowChoreographerTest {
     assertThat(thing.getSetCount()).isWithin(5).of(67); // Should be ~ (1000 / 15) ~ 67
   }
 
+  private static int metricCount(String name) {
+    return PerfStatsCollector.getInstance().getMetrics().stream()
+        .filter(metric -> metric.getName().equals(name))
+        .mapToInt(Metric::getCount)
+        .sum();
+  }
+
   public static class ThingToAnimate {
     private float value = 0f;
     private int setCount = 0;
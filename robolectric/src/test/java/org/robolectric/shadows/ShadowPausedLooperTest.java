@@ -4,6 +4,7 @@ import static android.os.Looper.getMainLooper;
 import static com.google.common.truth.Truth.assertThat;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
@@ -24,6 +25,7 @@ import android.os.SystemClock;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.common.util.concurrent.SettableFuture;
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
@@ -40,8 +42,10 @@ import org.junit.runner.RunWith;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 import org.robolectric.annotation.LooperMode;
+import org.robolectric.pluginapi.perf.Metric;
 import org.robolectric.res.android.Ref;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.util.PerfStatsCollector;
 import org.robolectric.util.reflector.Direct;
 import org.robolectric.util.reflector.ForType;
 
@@ -96,6 +100,44 @@ public class ShadowPausedLooperTest {
     assertThat(getMainLooper().getThread()).isSameInstanceAs(Thread.currentThread());
   }
 
+  @Test
+  public void idle_withTraceMessages_recordsMessageMetrics() {
+    PerfStatsCollector.getInstance().setEnabled(true);
+    ShadowPausedLooper.setTraceMessages(true);
+    Handler handler = new Handler(getMainLooper());
+    AtomicInteger runs = new AtomicInteger();
+    handler.post(runs::incrementAndGet);
+    handler.post(runs::incrementAndGet);
+    handler.sendEmptyMessage(42);
+
+    shadowMainLooper().idle();
+
+    assertThat(runs.get()).isEqualTo(2);
+    assertThat(messageMetricNames())
+        .containsExactly(
+            "ShadowPausedLooper.message:android.os.Handler/"
+                + ShadowPausedLooperTest.class.getName()
+                + "$$Lambda",
+            "ShadowPausedLooper.message:android.os.Handler what=42");
+  }
+
+  @Test
+  public void idle_withoutTraceMessages_recordsNoMessageMetrics() {
+    PerfStatsCollector.getInstance().setEnabled(true);
+    new Handler(getMainLooper()).sendEmptyMessage(42);
+
+    shadowMainLooper().idle();
+
+    assertThat(messageMetricNames()).isEmpty();
+  }
+
+  private static List<String> messageMetricNames() {
+    return PerfStatsCollector.getInstance().getMetrics().stream()
+        .map(Metric::getName)
+        .filter(name -> name.startsWith("ShadowPausedLooper.message:"))
+        .collect(toList());
+  }
+
   @Test
   public void postedMainLooperTasksAreNotExecuted() {
     Runnable mockRunnable = mock(Runnable.class);
@@ -114,6 +156,17 @@ public class ShadowPausedLooperTest {
     verify(mockRunnable, times(1)).run();
   }
 
+  @Test
+  public void idleAsync_executesBackgroundLooperTasks() throws Exception {
+    shadowOf(handlerThread.getLooper()).pause();
+    Runnable mockRunnable = mock(Runnable.class);
+    new Handler(handlerThread.getLooper()).post(mockRunnable);
+    ShadowPausedLooper shadowLooper = Shadow.extract(handlerThread.getLooper());
+
+    shadowLooper.idleAsync().get();
+    verify(mockRunnable, times(1)).run();
+  }
+
   @Test
   public void postedBackgroundLooperTasksWhenPaused() {
     Runnable mockRunnable = mock(Runnable.class);
@@ -376,6 +429,45 @@ public class ShadowPausedLooperTest {
     verify(mockRunnable, times(1)).run();
   }
 
+  @Test
+  public void idleAllLoopersFor_executesTasksAcrossLoopers() {
+    shadowOf(handlerThread.getLooper()).pause();
+    long startTimeMs = SystemClock.uptimeMillis();
+    Handler mainHandler = new Handler(getMainLooper());
+    Handler backgroundHandler = new Handler(handlerThread.getLooper());
+    Runnable mockRunnable = mock(Runnable.class);
+    AtomicInteger backgroundRuns = new AtomicInteger();
+    mainHandler.postDelayed(
+        () ->
+            backgroundHandler.postDelayed(
+                () -> {
+                  backgroundRuns.incrementAndGet();
+                  mainHandler.postDelayed(mockRunnable, 100);
+                },
+                100),
+        100);
+
+    ShadowLooper.idleAllLoopersFor(Duration.ofMillis(250));
+    assertThat(backgroundRuns.get()).isEqualTo(1);
+    verify(mockRunnable, times(0)).run();
+
+    ShadowLooper.idleAllLoopersFor(Duration.ofMillis(50));
+    verify(mockRunnable, times(1)).run();
+    assertThat(SystemClock.uptimeMillis()).isEqualTo(startTimeMs + 300);
+  }
+
+  @Test
+  public void idleAllLoopers_executesTasksPostedToOtherLoopers() {
+    shadowOf(handlerThread.getLooper()).pause();
+    Handler mainHandler = new Handler(getMainLooper());
+    Handler backgroundHandler = new Handler(handlerThread.getLooper());
+    Runnable mockRunnable = mock(Runnable.class);
+    backgroundHandler.post(() -> mainHandler.post(mockRunnable));
+
+    ShadowLooper.idleAllLoopers();
+    verify(mockRunnable, times(1)).run();
+  }
+
   @Test
   public void idleExecutesPostedRunnables() {
     ShadowPausedLooper shadowLooper = Shadow.extract(getMainLooper());
@@ -12,6 +12,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.objectweb.asm.tree.MethodInsnNode;
 import org.robolectric.annotation.internal.DoNotInstrument;
@@ -60,6 +61,12 @@ public class InstrumentationConfiguration {
   private final Set<String> packagesToNotInstrument;
   private int cachedHashCode;
 
+  // Compiled forms of the above, consulted for every class the SandboxClassLoader loads.
+  private final PrefixMatcher instrumentedPackagesMatcher;
+  private final PrefixMatcher packagesToNotAcquireMatcher;
+  private final PrefixMatcher packagesToNotInstrumentMatcher;
+  private final Pattern classesToNotInstrumentPattern;
+
   private final TypeMapper typeMapper;
   private final Set<MethodRef> methodsToIntercept;
 
@@ -84,6 +91,17 @@ public class InstrumentationConfiguration {
     this.classesToNotInstrumentRegex = classesToNotInstrumentRegex;
     this.cachedHashCode = 0;
 
+    this.instrumentedPackagesMatcher = new PrefixMatcher(this.instrumentedPackages);
+    this.packagesToNotAcquireMatcher =
+        new PrefixMatcher(
+            ImmutableSet.<String>builder()
+                .addAll(PACKAGES_TO_NEVER_ACQUIRE)
+                .addAll(this.packagesToNotAcquire)
+                .build());
+    this.packagesToNotInstrumentMatcher = new PrefixMatcher(this.packagesToNotInstrument);
+    this.classesToNotInstrumentPattern =
+        classesToNotInstrumentRegex == null ? null : Pattern.compile(classesToNotInstrumentRegex);
+
     this.typeMapper = new TypeMapper(classNameTranslations());
     this.methodsToIntercept = ImmutableSet.copyOf(convertToSlashes(methodsToIntercept()));
   }
@@ -109,7 +127,8 @@ public class InstrumentationConfiguration {
   }
 
   private boolean classMatchesExclusionRegex(String className) {
-    return classesToNotInstrumentRegex != null && className.matches(classesToNotInstrumentRegex);
+    return classesToNotInstrumentPattern != null
+        && classesToNotInstrumentPattern.matcher(className).matches();
   }
 
   /**
@@ -128,7 +147,7 @@ public class InstrumentationConfiguration {
     }
 
     // android.R and com.android.internal.R classes must be loaded from the framework jar
-    if (name.matches("(android|com\\.android\\.internal)\\.R(\\$.+)?")) {
+    if (isFrameworkRClass(name)) {
       return true;
     }
 
@@ -138,18 +157,28 @@ public class InstrumentationConfiguration {
       return true;
     }
 
-    for (String packageName : PACKAGES_TO_NEVER_ACQUIRE) {
-      if (name.startsWith(packageName)) {
-        return false;
-      }
+    if (packagesToNotAcquireMatcher.matchesPrefixOf(name)) {
+      return false;
     }
+    return !classesToNotAcquire.contains(name);
+  }
 
-    for (String packageName : packagesToNotAcquire) {
-      if (name.startsWith(packageName)) {
-        return false;
-      }
+  /**
+   * Equivalent to {@code name.matches("(android|com\\.android\\.internal)\\.R(\\$.+)?")}, without
+   * the regex.
+   */
+  private static boolean isFrameworkRClass(String name) {
+    int rStart;
+    if (name.startsWith("android.R")) {
+      rStart = "android.".length();
+    } else if (name.startsWith("com.android.internal.R")) {
+      rStart = "com.android.internal.".length();
+    } else {
+      return false;
     }
-    return !classesToNotAcquire.contains(name);
+    int afterR = rStart + 1;
+    return name.length() == afterR
+        || (name.charAt(afterR) == '$' && name.length() > afterR + 1);
   }
 
   /**
@@ -182,21 +211,11 @@ public class InstrumentationConfiguration {
   }
 
   private boolean isInInstrumentedPackage(String className) {
-    for (String instrumentedPackage : instrumentedPackages) {
-      if (className.startsWith(instrumentedPackage)) {
-        return true;
-      }
-    }
-    return false;
+    return instrumentedPackagesMatcher.matchesPrefixOf(className);
   }
 
   private boolean isInPackagesToNotInstrument(String className) {
-    for (String notInstrumentedPackage : packagesToNotInstrument) {
-      if (className.startsWith(notInstrumentedPackage)) {
-        return true;
-      }
-    }
-    return false;
+    return packagesToNotInstrumentMatcher.matchesPrefixOf(className);
   }
 
   @Override
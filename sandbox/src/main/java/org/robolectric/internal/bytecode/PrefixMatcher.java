@@ -0,0 +1,88 @@
+package org.robolectric.internal.bytecode;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Matches names against a fixed set of prefixes (typically package names such as {@code
+ * "android."}).
+ *
+ * <p>The prefixes are compiled into a character trie, so {@link #matchesPrefixOf(String)} runs in
+ * time proportional to the length of the longest matching prefix rather than to the number of
+ * prefixes, and doesn't allocate. This matters for {@link SandboxClassLoader}, which consults
+ * {@link InstrumentationConfiguration} for every class and resource it loads.
+ */
+final class PrefixMatcher {
+
+  private static final char[] NO_CHARS = new char[0];
+  private static final Node[] NO_NODES = new Node[0];
+
+  private final Node root = new Node();
+
+  PrefixMatcher(Collection<String> prefixes) {
+    for (String prefix : prefixes) {
+      add(prefix);
+    }
+  }
+
+  private void add(String prefix) {
+    Node node = root;
+    for (int i = 0; i < prefix.length() && !node.terminal; i++) {
+      node = node.childOrCreate(prefix.charAt(i));
+    }
+    // A shorter prefix subsumes all longer ones beneath it.
+    node.terminal = true;
+    node.chars = NO_CHARS;
+    node.children = NO_NODES;
+  }
+
+  /** Returns true if any of the prefixes is a prefix of {@code name}. */
+  boolean matchesPrefixOf(String name) {
+    Node node = root;
+    int length = name.length();
+    for (int i = 0; ; i++) {
+      if (node.terminal) {
+        return true;
+      }
+      if (i == length) {
+        return false;
+      }
+      node = node.child(name.charAt(i));
+      if (node == null) {
+        return false;
+      }
+    }
+  }
+
+  private static final class Node {
+    // Sorted, parallel to children.
+    private char[] chars = NO_CHARS;
+    private Node[] children = NO_NODES;
+    private boolean terminal;
+
+    Node child(char c) {
+      int i = Arrays.binarySearch(chars, c);
+      return i >= 0 ? children[i] : null;
+    }
+
+    Node childOrCreate(char c) {
+      int i = Arrays.binarySearch(chars, c);
+      if (i >= 0) {
+        return children[i];
+      }
+      int insertAt = -(i + 1);
+      char[] newChars = new char[chars.length + 1];
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(chars, 0, newChars, 0, insertAt);
+      System.arraycopy(children, 0, newChildren, 0, insertAt);
+      System.arraycopy(chars, insertAt, newChars, insertAt + 1, chars.length - insertAt);
+      System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+      Node node = new Node();
+      newChars[insertAt] = c;
+      newChildren[insertAt] = node;
+      chars = newChars;
+      children = newChildren;
+      return node;
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package org.robolectric.internal.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link PrefixMatcher} */
+@RunWith(JUnit4.class)
+public class PrefixMatcherTest {
+
+  private final PrefixMatcher matcher =
+      new PrefixMatcher(ImmutableList.of("android.os.", "android.", "com.xy", "com.x"));
+
+  @Test
+  public void matchesNamesStartingWithAnyPrefix() {
+    assertThat(matcher.matchesPrefixOf("android.")).isTrue();
+    assertThat(matcher.matchesPrefixOf("android.app.Activity")).isTrue();
+    assertThat(matcher.matchesPrefixOf("android.os.Looper")).isTrue();
+    assertThat(matcher.matchesPrefixOf("com.x")).isTrue();
+    assertThat(matcher.matchesPrefixOf("com.xyz.Foo")).isTrue();
+  }
+
+  @Test
+  public void doesNotMatchOtherNames() {
+    assertThat(matcher.matchesPrefixOf("")).isFalse();
+    assertThat(matcher.matchesPrefixOf("android")).isFalse();
+    assertThat(matcher.matchesPrefixOf("androidx.core.Foo")).isFalse();
+    assertThat(matcher.matchesPrefixOf("com.")).isFalse();
+    assertThat(matcher.matchesPrefixOf("java.lang.Object")).isFalse();
+  }
+
+  @Test
+  public void emptyPrefixMatchesEverything() {
+    PrefixMatcher matchAll = new PrefixMatcher(ImmutableList.of("android.", ""));
+    assertThat(matchAll.matchesPrefixOf("")).isTrue();
+    assertThat(matchAll.matchesPrefixOf("java.lang.Object")).isTrue();
+  }
+
+  @Test
+  public void noPrefixesMatchesNothing() {
+    PrefixMatcher matchNone = new PrefixMatcher(ImmutableList.of());
+    assertThat(matchNone.matchesPrefixOf("")).isFalse();
+    assertThat(matchNone.matchesPrefixOf("android.")).isFalse();
+  }
+}
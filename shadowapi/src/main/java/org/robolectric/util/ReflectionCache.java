@@ -0,0 +1,419 @@
+package org.robolectric.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of reflectively resolved members, used by {@link ReflectionHelpers}.
+ *
+ * <p>Members are resolved once per (class, name, parameter types) and turned into {@link
+ * MethodHandle}s with a uniform erased signature, so repeated reflective calls skip the
+ * getDeclaredField/getDeclaredMethod walk, {@code setAccessible} and the access checks of {@link
+ * Method#invoke}. Entries are stored in a {@link ClassValue}, so they are released together with
+ * the class (and the sandbox class loader which loaded it).
+ *
+ * <p>Failed lookups are not cached.
+ *
+ * <p>{@link ReflectionHelpers} is also used by tests running on Android devices, where {@link
+ * ClassValue} doesn't exist and {@link MethodHandle}s are only available from API 26. There,
+ * members are resolved on every call and invoked through core reflection, as before.
+ */
+final class ReflectionCache {
+
+  private static final boolean ENABLED =
+      !"The Android Project".equals(System.getProperty("java.vendor"));
+
+  private ReflectionCache() {}
+
+  /**
+   * Returns the field with the given name declared by {@code targetClass} or the nearest of its
+   * superclasses.
+   */
+  static CachedField findField(Class<?> targetClass, String name) throws NoSuchFieldException {
+    if (!ENABLED) {
+      return new CachedField(traverseForField(targetClass, name));
+    }
+    MemberKey key = new MemberKey(MemberKey.FIELD_IN_HIERARCHY, name, null);
+    CachedField cached = (CachedField) Members.of(targetClass).get(key);
+    if (cached == null) {
+      cached = new CachedField(traverseForField(targetClass, name));
+      Members.of(targetClass).putIfAbsent(key, cached);
+    }
+    return cached;
+  }
+
+  /** Returns the field with the given name declared by exactly {@code declaringClass}. */
+  static CachedField declaredField(Class<?> declaringClass, String name)
+      throws NoSuchFieldException {
+    if (!ENABLED) {
+      return new CachedField(accessible(declaringClass.getDeclaredField(name)));
+    }
+    MemberKey key = new MemberKey(MemberKey.DECLARED_FIELD, name, null);
+    CachedField cached = (CachedField) Members.of(declaringClass).get(key);
+    if (cached == null) {
+      cached = new CachedField(accessible(declaringClass.getDeclaredField(name)));
+      Members.of(declaringClass).putIfAbsent(key, cached);
+    }
+    return cached;
+  }
+
+  /**
+   * Returns the method declared by {@code targetClass} or the nearest of its superclasses with the
+   * given name and parameter types.
+   */
+  static CachedMethod findMethod(Class<?> targetClass, String name, Class<?>[] parameterTypes)
+      throws NoSuchMethodException {
+    if (!ENABLED) {
+      return new CachedMethod(traverseForMethod(targetClass, name, parameterTypes));
+    }
+    MemberKey key = new MemberKey(MemberKey.METHOD_IN_HIERARCHY, name, parameterTypes);
+    CachedMethod cached = (CachedMethod) Members.of(targetClass).get(key);
+    if (cached == null) {
+      cached = new CachedMethod(traverseForMethod(targetClass, name, parameterTypes));
+      Members.of(targetClass).putIfAbsent(key, cached);
+    }
+    return cached;
+  }
+
+  /** Returns the method declared by exactly {@code declaringClass}. */
+  static CachedMethod declaredMethod(
+      Class<?> declaringClass, String name, Class<?>[] parameterTypes)
+      throws NoSuchMethodException {
+    if (!ENABLED) {
+      return new CachedMethod(accessible(declaringClass.getDeclaredMethod(name, parameterTypes)));
+    }
+    MemberKey key = new MemberKey(MemberKey.DECLARED_METHOD, name, parameterTypes);
+    CachedMethod cached = (CachedMethod) Members.of(declaringClass).get(key);
+    if (cached == null) {
+      cached = new CachedMethod(accessible(declaringClass.getDeclaredMethod(name, parameterTypes)));
+      Members.of(declaringClass).putIfAbsent(key, cached);
+    }
+    return cached;
+  }
+
+  /** Returns the constructor declared by {@code declaringClass} with the given parameter types. */
+  static CachedConstructor declaredConstructor(
+      Class<?> declaringClass, Class<?>[] parameterTypes) throws NoSuchMethodException {
+    if (!ENABLED) {
+      return new CachedConstructor(
+          accessible(declaringClass.getDeclaredConstructor(parameterTypes)));
+    }
+    MemberKey key = new MemberKey(MemberKey.CONSTRUCTOR, "<init>", parameterTypes);
+    CachedConstructor cached = (CachedConstructor) Members.of(declaringClass).get(key);
+    if (cached == null) {
+      cached =
+          new CachedConstructor(accessible(declaringClass.getDeclaredConstructor(parameterTypes)));
+      Members.of(declaringClass).putIfAbsent(key, cached);
+    }
+    return cached;
+  }
+
+  private static <T extends AccessibleObject> T accessible(T member) {
+    member.setAccessible(true);
+    return member;
+  }
+
+  private static Field traverseForField(Class<?> targetClass, String name)
+      throws NoSuchFieldException {
+    NoSuchFieldException firstFailure = null;
+    for (Class<?> c = targetClass; c != null; c = c.getSuperclass()) {
+      try {
+        Field field = c.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+      } catch (NoSuchFieldException e) {
+        if (firstFailure == null) {
+          firstFailure = e;
+        }
+      }
+    }
+    throw firstFailure;
+  }
+
+  private static Method traverseForMethod(
+      Class<?> targetClass, String name, Class<?>[] parameterTypes) throws NoSuchMethodException {
+    NoSuchMethodException firstFailure = null;
+    for (Class<?> c = targetClass; c != null; c = c.getSuperclass()) {
+      try {
+        Method method = c.getDeclaredMethod(name, parameterTypes);
+        method.setAccessible(true);
+        return method;
+      } catch (NoSuchMethodException e) {
+        if (firstFailure == null) {
+          firstFailure = e;
+        }
+      }
+    }
+    throw firstFailure;
+  }
+
+  /** A resolved, accessible field. */
+  static final class CachedField {
+    final Field field;
+    // null if not ENABLED.
+    private final Handles.FieldHandles handles;
+
+    CachedField(Field field) {
+      this.field = field;
+      this.handles = ENABLED ? new Handles.FieldHandles(field) : null;
+    }
+
+    Object get(Object instance) throws Throwable {
+      return handles == null ? field.get(instance) : handles.get(instance);
+    }
+
+    void set(Object instance, Object value) throws Throwable {
+      if (handles == null || !handles.set(instance, value)) {
+        field.set(instance, value);
+      }
+    }
+  }
+
+  /** A resolved, accessible method. */
+  static final class CachedMethod {
+    final Method method;
+    final boolean isStatic;
+    // A MethodHandle, or null if not ENABLED.
+    private final Object invoker;
+
+    CachedMethod(Method method) {
+      this.method = method;
+      this.isStatic = Modifier.isStatic(method.getModifiers());
+      this.invoker = ENABLED ? Handles.methodInvoker(method, isStatic) : null;
+    }
+
+    /**
+     * Invokes the method. Like {@link Method#invoke}, exceptions thrown by the method itself are
+     * wrapped in an {@link InvocationTargetException}, and failures to invoke it (e.g. a null
+     * receiver or an argument of the wrong type) are thrown as-is.
+     */
+    Object invoke(Object instance, Object[] args) throws Throwable {
+      if (invoker == null) {
+        return method.invoke(instance, args);
+      }
+      if (!isStatic && instance == null) {
+        // The method handle would throw this from inside the method, where it can't be told apart
+        // from an exception thrown by the method itself.
+        throw new NullPointerException("null receiver for " + method);
+      }
+      return Handles.invoke(invoker, instance, args);
+    }
+  }
+
+  /** A resolved, accessible constructor. */
+  static final class CachedConstructor {
+    final Constructor<?> constructor;
+    // A MethodHandle, or null if not ENABLED.
+    private final Object invoker;
+
+    CachedConstructor(Constructor<?> constructor) {
+      this.constructor = constructor;
+      this.invoker = ENABLED ? Handles.constructorInvoker(constructor) : null;
+    }
+
+    /**
+     * Invokes the constructor. Like {@link Constructor#newInstance}, exceptions thrown by the
+     * constructor itself are wrapped in an {@link InvocationTargetException}, and failures to
+     * invoke it are thrown as-is.
+     */
+    Object newInstance(Object[] args) throws Throwable {
+      if (invoker == null) {
+        return constructor.newInstance(args);
+      }
+      return Handles.invoke(invoker, args);
+    }
+  }
+
+  /** Per-class member storage; only loaded if ENABLED. */
+  private static final class Members {
+    private static final ClassValue<ConcurrentMap<MemberKey, Object>> MEMBERS =
+        new ClassValue<ConcurrentMap<MemberKey, Object>>() {
+          @Override
+          protected ConcurrentMap<MemberKey, Object> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+          }
+        };
+
+    static ConcurrentMap<MemberKey, Object> of(Class<?> type) {
+      return MEMBERS.get(type);
+    }
+  }
+
+  /**
+   * Method handles with uniform erased signatures: {@code (Object)Object} getters, {@code
+   * (Object, Object)void} setters, {@code (Object, Object[])Object} method invokers and {@code
+   * (Object[])Object} constructor invokers. Only loaded if ENABLED.
+   *
+   * <p>Invokers wrap exceptions thrown by the member itself in an {@link
+   * InvocationTargetException}. The argument conversions around the member are outside of that, so
+   * their failures (e.g. a {@link ClassCastException} for an argument of the wrong type) are not.
+   */
+  private static final class Handles {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodType GETTER_TYPE =
+        MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE =
+        MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType INVOKER_TYPE =
+        MethodType.methodType(Object.class, Object.class, Object[].class);
+    private static final MethodType CONSTRUCTOR_TYPE =
+        MethodType.methodType(Object.class, Object[].class);
+
+    private static final MethodHandle THROW_TARGET_EXCEPTION;
+
+    static {
+      try {
+        THROW_TARGET_EXCEPTION =
+            LOOKUP.findStatic(
+                Handles.class,
+                "throwTargetException",
+                MethodType.methodType(Object.class, Throwable.class));
+      } catch (ReflectiveOperationException e) {
+        throw new LinkageError("unable to find throwTargetException", e);
+      }
+    }
+
+    static final class FieldHandles {
+      private final MethodHandle getter;
+      // null if the JVM does not grant write access through a method handle (e.g. static finals).
+      private final MethodHandle setter;
+
+      FieldHandles(Field field) {
+        boolean isStatic = Modifier.isStatic(field.getModifiers());
+        MethodHandle getter;
+        MethodHandle setter;
+        try {
+          getter = LOOKUP.unreflectGetter(field);
+          if (isStatic) {
+            getter = MethodHandles.dropArguments(getter, 0, Object.class);
+          }
+          getter = getter.asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+          throw new LinkageError("unable to access " + field, e);
+        }
+        try {
+          setter = LOOKUP.unreflectSetter(field);
+          if (isStatic) {
+            setter = MethodHandles.dropArguments(setter, 0, Object.class);
+          }
+          setter = setter.asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+          setter = null;
+        }
+        this.getter = getter;
+        this.setter = setter;
+      }
+
+      Object get(Object instance) throws Throwable {
+        return (Object) getter.invokeExact(instance);
+      }
+
+      /** Returns false if the field can't be written through a method handle. */
+      boolean set(Object instance, Object value) throws Throwable {
+        if (setter == null) {
+          return false;
+        }
+        setter.invokeExact(instance, value);
+        return true;
+      }
+    }
+
+    static Object methodInvoker(Method method, boolean isStatic) {
+      try {
+        MethodHandle handle =
+            wrapTargetExceptions(LOOKUP.unreflect(method))
+                .asSpreader(Object[].class, method.getParameterCount());
+        if (isStatic) {
+          handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return handle.asType(INVOKER_TYPE);
+      } catch (IllegalAccessException e) {
+        throw new LinkageError("unable to access " + method, e);
+      }
+    }
+
+    static Object constructorInvoker(Constructor<?> constructor) {
+      try {
+        return wrapTargetExceptions(LOOKUP.unreflectConstructor(constructor))
+            .asSpreader(Object[].class, constructor.getParameterCount())
+            .asType(CONSTRUCTOR_TYPE);
+      } catch (IllegalAccessException e) {
+        throw new LinkageError("unable to access " + constructor, e);
+      }
+    }
+
+    private static MethodHandle wrapTargetExceptions(MethodHandle target) {
+      MethodType type = target.type();
+      MethodHandle handler =
+          MethodHandles.dropArguments(
+              THROW_TARGET_EXCEPTION.asType(
+                  MethodType.methodType(type.returnType(), Throwable.class)),
+              1,
+              type.parameterList());
+      return MethodHandles.catchException(target, Throwable.class, handler);
+    }
+
+    @SuppressWarnings("unused") // Called through THROW_TARGET_EXCEPTION.
+    private static Object throwTargetException(Throwable t) throws InvocationTargetException {
+      throw new InvocationTargetException(t);
+    }
+
+    static Object invoke(Object invoker, Object instance, Object[] args) throws Throwable {
+      return (Object) ((MethodHandle) invoker).invokeExact(instance, args);
+    }
+
+    static Object invoke(Object invoker, Object[] args) throws Throwable {
+      return (Object) ((MethodHandle) invoker).invokeExact(args);
+    }
+  }
+
+  private static final class MemberKey {
+    static final int FIELD_IN_HIERARCHY = 0;
+    static final int DECLARED_FIELD = 1;
+    static final int METHOD_IN_HIERARCHY = 2;
+    static final int DECLARED_METHOD = 3;
+    static final int CONSTRUCTOR = 4;
+
+    private final int kind;
+    private final String name;
+    private final Class<?>[] parameterTypes;
+    private final int hashCode;
+
+    MemberKey(int kind, String name, Class<?>[] parameterTypes) {
+      this.kind = kind;
+      this.name = name;
+      this.parameterTypes = parameterTypes;
+      this.hashCode = 31 * (31 * kind + name.hashCode()) + Arrays.hashCode(parameterTypes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof MemberKey)) {
+        return false;
+      }
+      MemberKey that = (MemberKey) o;
+      return kind == that.kind
+          && name.equals(that.name)
+          && Arrays.equals(parameterTypes, that.parameterTypes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -174,16 +174,9 @@ public class ReflectionHelpers {
   @SuppressWarnings("unchecked")
   public static <R> R getField(final Object object, final String fieldName) {
     try {
-      return traverseClassHierarchy(
-          object.getClass(),
-          NoSuchFieldException.class,
-          traversalClass -> {
-            Field field = traversalClass.getDeclaredField(fieldName);
-            field.setAccessible(true);
-            return (R) field.get(object);
-          });
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+      return (R) ReflectionCache.findField(object.getClass(), fieldName).get(object);
+    } catch (Throwable t) {
+      throw wrap(t);
     }
   }
 
@@ -197,18 +190,9 @@ public class ReflectionHelpers {
   public static void setField(
       final Object object, final String fieldName, final Object fieldNewValue) {
     try {
-      traverseClassHierarchy(
-          object.getClass(),
-          NoSuchFieldException.class,
-          (InsideTraversal<Void>)
-              traversalClass -> {
-                Field field = traversalClass.getDeclaredField(fieldName);
-                field.setAccessible(true);
-                field.set(object, fieldNewValue);
-                return null;
-              });
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+      ReflectionCache.findField(object.getClass(), fieldName).set(object, fieldNewValue);
+    } catch (Throwable t) {
+      throw wrap(t);
     }
   }
 
@@ -223,11 +207,9 @@ public class ReflectionHelpers {
   public static void setField(
       Class<?> type, final Object object, final String fieldName, final Object fieldNewValue) {
     try {
-      Field field = type.getDeclaredField(fieldName);
-      field.setAccessible(true);
-      field.set(object, fieldNewValue);
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+      ReflectionCache.declaredField(type, fieldName).set(object, fieldNewValue);
+    } catch (Throwable t) {
+      throw wrap(t);
     }
   }
 
@@ -273,11 +255,12 @@ public class ReflectionHelpers {
    * @param <R> The return type.
    * @return Value of the field.
    */
+  @SuppressWarnings("unchecked")
   public static <R> R getStaticField(Class<?> clazz, String fieldName) {
     try {
-      return getStaticField(clazz.getDeclaredField(fieldName));
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+      return (R) ReflectionCache.declaredField(clazz, fieldName).get(null);
+    } catch (Throwable t) {
+      throw wrap(t);
     }
   }
 
@@ -308,9 +291,14 @@ public class ReflectionHelpers {
    */
   public static void setStaticField(Class<?> clazz, String fieldName, Object fieldNewValue) {
     try {
-      setStaticField(clazz.getDeclaredField(fieldName), fieldNewValue);
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+      ReflectionCache.CachedField cachedField = ReflectionCache.declaredField(clazz, fieldName);
+      if ((cachedField.field.getModifiers() & Modifier.FINAL) == Modifier.FINAL) {
+        throw new IllegalArgumentException(
+            "Cannot set the value of final field " + cachedField.field);
+      }
+      cachedField.set(null, fieldNewValue);
+    } catch (Throwable t) {
+      throw wrap(t);
     }
   }
 
@@ -326,32 +314,21 @@ public class ReflectionHelpers {
   public static <R> R callInstanceMethod(
       final Object instance, final String methodName, ClassParameter<?>... classParameters) {
     perfStatsCollector.incrementCount(
-        String.format(
-            "ReflectionHelpers.callInstanceMethod-%s_%s",
-            instance.getClass().getName(), methodName));
+        "ReflectionHelpers.callInstanceMethod-" + instance.getClass().getName() + "_" + methodName);
+    final Class<?>[] classes = ClassParameter.getClasses(classParameters);
+    final Object[] values = ClassParameter.getValues(classParameters);
+
+    ReflectionCache.CachedMethod method;
     try {
-      final Class<?>[] classes = ClassParameter.getClasses(classParameters);
-      final Object[] values = ClassParameter.getValues(classParameters);
-
-      return traverseClassHierarchy(
-          instance.getClass(),
-          NoSuchMethodException.class,
-          traversalClass -> {
-            Method declaredMethod = traversalClass.getDeclaredMethod(methodName, classes);
-            declaredMethod.setAccessible(true);
-            return (R) declaredMethod.invoke(instance, values);
-          });
-    } catch (InvocationTargetException e) {
-      if (e.getTargetException() instanceof RuntimeException) {
-        throw (RuntimeException) e.getTargetException();
-      }
-      if (e.getTargetException() instanceof Error) {
-        throw (Error) e.getTargetException();
-      }
-      throw new RuntimeException(e.getTargetException());
-    } catch (Exception e) {
+      method = ReflectionCache.findMethod(instance.getClass(), methodName, classes);
+    } catch (NoSuchMethodException e) {
       throw new RuntimeException(e);
     }
+    try {
+      return (R) method.invoke(instance, values);
+    } catch (Throwable t) {
+      throw wrap(t);
+    }
   }
 
   /**
@@ -370,28 +347,24 @@ public class ReflectionHelpers {
       final String methodName,
       ClassParameter<?>... classParameters) {
     perfStatsCollector.incrementCount(
-        String.format("ReflectionHelpers.callInstanceMethod-%s_%s", cl.getName(), methodName));
-    try {
-      final Class<?>[] classes = ClassParameter.getClasses(classParameters);
-      final Object[] values = ClassParameter.getValues(classParameters);
+        "ReflectionHelpers.callInstanceMethod-" + cl.getName() + "_" + methodName);
+    final Class<?>[] classes = ClassParameter.getClasses(classParameters);
+    final Object[] values = ClassParameter.getValues(classParameters);
 
-      Method method = cl.getDeclaredMethod(methodName, classes);
-      method.setAccessible(true);
-      if (Modifier.isStatic(method.getModifiers())) {
-        throw new IllegalArgumentException(method + " is static");
-      }
-      return (R) method.invoke(instance, values);
-    } catch (InvocationTargetException e) {
-      if (e.getTargetException() instanceof RuntimeException) {
-        throw (RuntimeException) e.getTargetException();
-      }
-      if (e.getTargetException() instanceof Error) {
-        throw (Error) e.getTargetException();
-      }
-      throw new RuntimeException(e.getTargetException());
-    } catch (Exception e) {
+    ReflectionCache.CachedMethod method;
+    try {
+      method = ReflectionCache.declaredMethod(cl, methodName, classes);
+    } catch (NoSuchMethodException e) {
       throw new RuntimeException(e);
     }
+    if (method.isStatic) {
+      throw new RuntimeException(new IllegalArgumentException(method.method + " is static"));
+    }
+    try {
+      return (R) method.invoke(instance, values);
+    } catch (Throwable t) {
+      throw wrap(t);
+    }
   }
 
   /**
@@ -427,29 +400,23 @@ public class ReflectionHelpers {
   public static <R> R callStaticMethod(
       Class<?> clazz, String methodName, ClassParameter<?>... classParameters) {
     perfStatsCollector.incrementCount(
-        String.format("ReflectionHelpers.callStaticMethod-%s_%s", clazz.getName(), methodName));
-    try {
-      Class<?>[] classes = ClassParameter.getClasses(classParameters);
-      Object[] values = ClassParameter.getValues(classParameters);
+        "ReflectionHelpers.callStaticMethod-" + clazz.getName() + "_" + methodName);
+    Class<?>[] classes = ClassParameter.getClasses(classParameters);
+    Object[] values = ClassParameter.getValues(classParameters);
 
-      Method method = clazz.getDeclaredMethod(methodName, classes);
-      method.setAccessible(true);
-      if (!Modifier.isStatic(method.getModifiers())) {
-        throw new IllegalArgumentException(method + " is not static");
-      }
-      return (R) method.invoke(null, values);
-    } catch (InvocationTargetException e) {
-      if (e.getTargetException() instanceof RuntimeException) {
-        throw (RuntimeException) e.getTargetException();
-      }
-      if (e.getTargetException() instanceof Error) {
-        throw (Error) e.getTargetException();
-      }
-      throw new RuntimeException(e.getTargetException());
+    ReflectionCache.CachedMethod method;
+    try {
+      method = ReflectionCache.declaredMethod(clazz, methodName, classes);
     } catch (NoSuchMethodException e) {
       throw new RuntimeException("no such method " + clazz + "." + methodName, e);
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+    }
+    if (!method.isStatic) {
+      throw new RuntimeException(new IllegalArgumentException(method.method + " is not static"));
+    }
+    try {
+      return (R) method.invoke(null, values);
+    } catch (Throwable t) {
+      throw wrap(t);
     }
   }
 
@@ -513,26 +480,24 @@ public class ReflectionHelpers {
   public static <R> R callConstructor(
       Class<? extends R> clazz, ClassParameter<?>... classParameters) {
     perfStatsCollector.incrementCount("ReflectionHelpers.callConstructor-" + clazz.getName());
+    final Class<?>[] classes = ClassParameter.getClasses(classParameters);
+    final Object[] values = ClassParameter.getValues(classParameters);
+
+    if (Modifier.isAbstract(clazz.getModifiers())) {
+      throw new RuntimeException(
+          "error instantiating " + clazz.getName(), new InstantiationException(clazz.getName()));
+    }
+    ReflectionCache.CachedConstructor constructor;
     try {
-      final Class<?>[] classes = ClassParameter.getClasses(classParameters);
-      final Object[] values = ClassParameter.getValues(classParameters);
-
-      Constructor<? extends R> constructor = clazz.getDeclaredConstructor(classes);
-      constructor.setAccessible(true);
-      return constructor.newInstance(values);
-    } catch (InstantiationException e) {
-      throw new RuntimeException("error instantiating " + clazz.getName(), e);
-    } catch (InvocationTargetException e) {
-      if (e.getTargetException() instanceof RuntimeException) {
-        throw (RuntimeException) e.getTargetException();
-      }
-      if (e.getTargetException() instanceof Error) {
-        throw (Error) e.getTargetException();
-      }
-      throw new RuntimeException(e.getTargetException());
-    } catch (Exception e) {
+      constructor = ReflectionCache.declaredConstructor(clazz, classes);
+    } catch (NoSuchMethodException e) {
       throw new RuntimeException(e);
     }
+    try {
+      return (R) constructor.newInstance(values);
+    } catch (Throwable t) {
+      throw wrap(t);
+    }
   }
 
   /**
@@ -603,33 +568,32 @@ public class ReflectionHelpers {
     return false;
   }
 
-  private static <R, E extends Exception> R traverseClassHierarchy(
-      Class<?> targetClass, Class<? extends E> exceptionClass, InsideTraversal<R> insideTraversal)
-      throws Exception {
-    Class<?> hierarchyTraversalClass = targetClass;
-    while (true) {
-      try {
-        return insideTraversal.run(hierarchyTraversalClass);
-      } catch (Exception e) {
-        if (!exceptionClass.isInstance(e)) {
-          throw e;
-        }
-        hierarchyTraversalClass = hierarchyTraversalClass.getSuperclass();
-        if (hierarchyTraversalClass == null) {
-          throw new RuntimeException(e);
-        }
+  /**
+   * Rethrows unchecked exceptions thrown by a reflectively invoked member, which reach this wrapped
+   * in an {@link InvocationTargetException}, as-is. Errors are rethrown as-is too. Anything else,
+   * including failures to access or invoke the member, is wrapped in a {@link RuntimeException}.
+   */
+  private static RuntimeException wrap(Throwable t) {
+    if (t instanceof InvocationTargetException) {
+      Throwable target = ((InvocationTargetException) t).getTargetException();
+      if (target instanceof RuntimeException) {
+        throw (RuntimeException) target;
+      }
+      if (target instanceof Error) {
+        throw (Error) target;
       }
+      return new RuntimeException(target);
     }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    return new RuntimeException(t);
   }
 
   public static Object defaultValueForType(String returnType) {
     return PRIMITIVE_RETURN_VALUES.get(returnType);
   }
 
-  private interface InsideTraversal<R> {
-    R run(Class<?> traversalClass) throws Exception;
-  }
-
   /**
    * Typed parameter used with reflective method calls.
    *
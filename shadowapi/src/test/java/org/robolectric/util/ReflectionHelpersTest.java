@@ -171,6 +171,30 @@ public class ReflectionHelpersTest {
     assertThat(returnNumber).isEqualTo(5);
   }
 
+  @Test
+  public void callInstanceMethodReflectively_repeatedCalls_useTheGivenInstance() {
+    ExampleDescendant first = new ExampleDescendant();
+    ExampleDescendant second = new ExampleDescendant();
+    first.setNotOverridden(1);
+    second.setNotOverridden(2);
+    assertThat((int) ReflectionHelpers.callInstanceMethod(first, "getNotOverridden"))
+        .isEqualTo(1);
+    assertThat((int) ReflectionHelpers.callInstanceMethod(second, "getNotOverridden"))
+        .isEqualTo(2);
+  }
+
+  @Test
+  public void getFieldReflectively_resolvesPerRuntimeClass() {
+    ExampleBase base = new ExampleBase();
+    ExampleDescendant descendant = new ExampleDescendant();
+    base.overridden = 1;
+    ((ExampleBase) descendant).overridden = 2;
+    descendant.overridden = 3;
+    assertThat((int) ReflectionHelpers.getField(base, "overridden")).isEqualTo(1);
+    assertThat((int) ReflectionHelpers.getField(descendant, "overridden")).isEqualTo(3);
+    assertThat((int) ReflectionHelpers.getField(base, "overridden")).isEqualTo(1);
+  }
+
   @Test
   public void callInstanceMethodReflectively_callsInheritedMethods() {
     ExampleDescendant example = new ExampleDescendant();
@@ -226,6 +250,29 @@ public class ReflectionHelpersTest {
     }
   }
 
+  @Test
+  public void callInstanceMethodReflectively_wrapsNullReceiver() {
+    RuntimeException e =
+        assertThrows(
+            RuntimeException.class,
+            () ->
+                ReflectionHelpers.callInstanceMethod(
+                    ExampleDescendant.class, null, "returnNumber"));
+    assertThat(e.getCause()).isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  public void callInstanceMethodReflectively_wrapsWrongArgumentType() {
+    ExampleDescendant example = new ExampleDescendant();
+    RuntimeException e =
+        assertThrows(
+            RuntimeException.class,
+            () ->
+                ReflectionHelpers.callInstanceMethod(
+                    example, "returnNumber", ClassParameter.from(int.class, (Object) "1")));
+    assertThat(e.getCause()).isNotNull();
+  }
+
   @Test
   public void callStaticMethodReflectively_callsPrivateStaticMethodsReflectively() {
     int constantNumber =
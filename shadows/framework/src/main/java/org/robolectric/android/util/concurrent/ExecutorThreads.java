@@ -0,0 +1,39 @@
+package org.robolectric.android.util.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import org.robolectric.util.Logger;
+
+/**
+ * Creates the threads that back Robolectric's executor services.
+ *
+ * <p>By default these are platform threads. When the {@code robolectric.useVirtualThreads} system
+ * property is set to {@code true} and the JDK supports them (21+), virtual threads are used
+ * instead, so tests that create many executors don't each hold on to a platform thread.
+ */
+final class ExecutorThreads {
+
+  private static final ThreadFactory virtualThreadFactory =
+      Boolean.getBoolean("robolectric.useVirtualThreads") ? createVirtualThreadFactory() : null;
+
+  private ExecutorThreads() {}
+
+  static Thread newThread(Runnable runnable) {
+    if (virtualThreadFactory != null) {
+      return virtualThreadFactory.newThread(runnable);
+    }
+    return new Thread(runnable);
+  }
+
+  // Thread.ofVirtual() is only available on JDK 21+, so look it up reflectively.
+  private static ThreadFactory createVirtualThreadFactory() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+      return (ThreadFactory) factory.invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      Logger.info("virtual threads are not available on this JDK, using platform threads");
+      return null;
+    }
+  }
+}
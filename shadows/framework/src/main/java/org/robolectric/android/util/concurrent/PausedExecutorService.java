@@ -1,12 +1,17 @@
 package org.robolectric.android.util.concurrent;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.google.common.annotations.Beta;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.AbstractFuture;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -27,6 +32,9 @@ import org.robolectric.util.Logger;
  * LooperMode.Mode#PAUSED}. Unlike {@link RoboExecutorService}, will execute tasks on a background
  * thread. This is useful to test Android code that enforces it runs off the main thread.
  *
+ * <p>The background thread is a virtual thread when the {@code robolectric.useVirtualThreads}
+ * system property is {@code true} and the JDK supports it.
+ *
  * <p>NOTE: Beta API, subject to change.
  */
 @Beta
@@ -55,7 +63,8 @@ public class PausedExecutorService extends AbstractExecutorService {
 
   private final ExecutorService realService;
   private final Queue<Runnable> deferredTasks = new ConcurrentLinkedQueue<>();
-  private Thread executorThread;
+  private final Set<Thread> executorThreads = ConcurrentHashMap.newKeySet();
+  private final int parallelism;
 
   private static class DeferredTask<V> extends AbstractFuture<V> implements RunnableFuture<V> {
 
@@ -67,19 +76,46 @@ public class PausedExecutorService extends AbstractExecutorService {
       this.executor = executor;
     }
 
+    private Future<V> started;
+
     @Override
     public void run() {
-      Future<V> future = executor.submit(callable);
-      set(getFutureResultWithExceptionPreserved(future));
+      start();
+      complete();
+    }
+
+    void start() {
+      started = executor.submit(callable);
+    }
+
+    void complete() {
+      set(getFutureResultWithExceptionPreserved(started));
     }
   }
 
   public PausedExecutorService() {
+    this(1);
+  }
+
+  /**
+   * Creates a PausedExecutorService whose {@link #runAll()} executes the queued tasks on up to
+   * {@code parallelism} background threads at once. This can cut the wall-clock time of tests that
+   * flush large batches of independent, CPU-heavy tasks.
+   *
+   * <p>The outcome stays deterministic: the returned futures are completed, and their listeners
+   * run, on the calling thread in the order the tasks were queued, no matter which task finishes
+   * first. Tasks queued while a batch is running are executed in a following batch.
+   */
+  public PausedExecutorService(int parallelism) {
+    checkArgument(parallelism > 0, "parallelism must be positive");
+    this.parallelism = parallelism;
     this.realService =
-        Executors.newSingleThreadExecutor(
+        Executors.newFixedThreadPool(
+            parallelism,
             r -> {
-              executorThread = new Thread(r);
-              return executorThread;
+              Thread thread = ExecutorThreads.newThread(r);
+              executorThreads.add(thread);
+              return thread;
             });
   }
 
@@ -90,10 +126,16 @@ public class PausedExecutorService extends AbstractExecutorService {
    */
   public int runAll() {
     int numTasksRun = 0;
-    if (Thread.currentThread().equals(executorThread)) {
+    if (executorThreads.contains(Thread.currentThread())) {
       Logger.info("ignoring request to execute task - called from executor's own thread");
       return numTasksRun;
     }
+    if (parallelism > 1) {
+      while (hasQueuedTasks()) {
+        numTasksRun += runBatch();
+      }
+      return numTasksRun;
+    }
     while (hasQueuedTasks()) {
       runNext();
       numTasksRun++;
@@ -101,6 +143,35 @@ public class PausedExecutorService extends AbstractExecutorService {
     return numTasksRun;
   }
 
+  /**
+   * Starts all currently queued tasks at once, then completes them in queue order. Like {@link
+   * #runNext()}, rethrows the exception of the first failed task, after the other tasks of the
+   * batch have been completed.
+   */
+  private int runBatch() {
+    List<DeferredTask<?>> batch = new ArrayList<>();
+    for (Runnable task = deferredTasks.poll(); task != null; task = deferredTasks.poll()) {
+      batch.add((DeferredTask<?>) task);
+    }
+    for (DeferredTask<?> task : batch) {
+      task.start();
+    }
+    RuntimeException failure = null;
+    for (DeferredTask<?> task : batch) {
+      try {
+        task.complete();
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return batch.size();
+  }
+
   /**
    * Executes the next queued task.
    *
@@ -112,7 +183,7 @@ public class PausedExecutorService extends AbstractExecutorService {
     if (!hasQueuedTasks()) {
       return false;
     }
-    if (Thread.currentThread().equals(executorThread)) {
+    if (executorThreads.contains(Thread.currentThread())) {
       Logger.info("ignoring request to execute task - called from executor's own thread");
       return false;
     }
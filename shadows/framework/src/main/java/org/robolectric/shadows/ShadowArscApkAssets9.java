@@ -117,7 +117,10 @@ public class ShadowArscApkAssets9 extends ShadowApkAssets {
       return 0;
     }
 
-    long cachedApkAssetsPtr = ApkAssetsCache.get(path, system, RuntimeEnvironment.getApiLevel());
+    // The shadow's class loader identifies this sandbox as a user of the cached ApkAssets.
+    ClassLoader sandboxClassLoader = ShadowArscApkAssets9.class.getClassLoader();
+    long cachedApkAssetsPtr =
+        ApkAssetsCache.get(path, system, RuntimeEnvironment.getApiLevel(), sandboxClassLoader);
     if (cachedApkAssetsPtr != -1) {
       return cachedApkAssetsPtr;
     }
@@ -148,8 +151,9 @@ public class ShadowArscApkAssets9 extends ShadowApkAssets {
                 throw new IOException(error_msg);
               }
               long ptr = Registries.NATIVE_APK_ASSETS_REGISTRY.register(apk_assets);
-              ApkAssetsCache.put(path, system, RuntimeEnvironment.getApiLevel(), ptr);
-              return ptr;
+              // Another sandbox may have loaded and cached the same ApkAssets in the meantime.
+              return ApkAssetsCache.put(
+                  path, system, RuntimeEnvironment.getApiLevel(), ptr, sandboxClassLoader);
             });
   }
 
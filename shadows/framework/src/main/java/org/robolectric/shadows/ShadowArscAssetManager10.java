@@ -818,6 +818,16 @@ public class ShadowArscAssetManager10 extends ShadowAssetManager.ArscBase {
     ATRACE_NAME(String.format("AssetManager::OpenXmlAsset(%s)", asset_path));
 
     CppAssetManager2 assetmanager = AssetManagerFromLong(ptr);
+
+    // Robolectric: reuse the tree parsed by an earlier call for the same file, e.g. when inflating
+    // the same layout repeatedly.
+    if (cookie.intValue() != kInvalidCookie) {
+      ResXMLTree cached_tree = assetmanager.OpenCachedXmlTree(asset_path, cookie);
+      if (cached_tree != null) {
+        return NATIVE_RES_XML_TREES.register(cached_tree);
+      }
+    }
+
     Asset asset;
     if (cookie.intValue() != kInvalidCookie) {
       asset = assetmanager.OpenNonAsset(asset_path, cookie, Asset.AccessMode.ACCESS_RANDOM);
@@ -841,6 +851,7 @@ public class ShadowArscAssetManager10 extends ShadowAssetManager.ArscBase {
     if (err != NO_ERROR) {
       throw new FileNotFoundException("Corrupt XML binary file");
     }
+    assetmanager.CacheXmlTree(asset_path, cookie, xml_tree);
     return NATIVE_RES_XML_TREES.register(xml_tree);
   }
 
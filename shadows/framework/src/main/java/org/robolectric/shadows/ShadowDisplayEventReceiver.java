@@ -25,6 +25,7 @@ import org.robolectric.annotation.RealObject;
 import org.robolectric.annotation.ReflectorObject;
 import org.robolectric.res.android.NativeObjRegistry;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.util.PerfStatsCollector;
 import org.robolectric.util.ReflectionHelpers;
 import org.robolectric.util.reflector.Accessor;
 import org.robolectric.util.reflector.Constructor;
@@ -46,6 +47,11 @@ import org.robolectric.versioning.AndroidVersions.U;
  * ShadowChoreographer#setFrameDelay(Duration)}. In paused mode the clock is not auto advanced and
  * the next frame will only trigger when the clock is advance manually or via the {@link
  * ShadowLooper}.
+ *
+ * <p>In paused mode, advancing the clock past several frame intervals dispatches a single frame
+ * rather than one per interval; the skipped intervals are counted in the {@code
+ * Choreographer.vsyncsCoalesced} metric. To also fast-forward animations to their end state, set
+ * {@link android.provider.Settings.Global#ANIMATOR_DURATION_SCALE} to 0.
  */
 @Implements(className = "android.view.DisplayEventReceiver", isInAndroidSdk = false)
 public class ShadowDisplayEventReceiver {
@@ -182,17 +188,37 @@ public class ShadowDisplayEventReceiver {
     }
 
     private void onClockAdvanced() {
+      long nextVsyncTime;
       synchronized (this) {
-        long nextVsyncTime = ShadowChoreographer.getNextVsyncTimeNanos();
+        nextVsyncTime = ShadowChoreographer.getNextVsyncTimeNanos();
         if (nextVsyncTime == 0 || ShadowPausedSystemClock.uptimeNanos() < nextVsyncTime) {
           return;
         }
         ShadowChoreographer.setNextVsyncTimeNanos(0);
       }
 
+      recordCoalescedVsyncs(nextVsyncTime);
       doVsync();
     }
 
+    /**
+     * A clock advance that spans several frame intervals still produces a single frame, since
+     * nothing could have requested another frame in between. Count the intervals that were folded
+     * into that frame, so their savings show up next to the "doFrame" metric.
+     */
+    private static void recordCoalescedVsyncs(long vsyncTimeNanos) {
+      long frameDelayNanos = ShadowChoreographer.getFrameDelay().toNanos();
+      if (frameDelayNanos <= 0) {
+        return;
+      }
+      long coalesced = (ShadowPausedSystemClock.uptimeNanos() - vsyncTimeNanos) / frameDelayNanos;
+      if (coalesced > 0) {
+        PerfStatsCollector.getInstance()
+            .incrementCount(
+                "Choreographer.vsyncsCoalesced", (int) Math.min(coalesced, Integer.MAX_VALUE));
+      }
+    }
+
     void dispose() {
       ShadowPausedSystemClock.removeListener(clockListener);
     }
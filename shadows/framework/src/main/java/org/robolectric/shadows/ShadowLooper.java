@@ -204,6 +204,32 @@ public abstract class ShadowLooper {
     getShadowMainLooper().runToEndOfTasks();
   }
 
+  /**
+   * Executes all tasks scheduled before or at the current time on every looper, repeating until
+   * all loopers are idle.
+   *
+   * <p>Not supported in {@link LooperMode.Mode#LEGACY} mode.
+   */
+  public static void idleAllLoopers() {
+    if (looperMode() == LEGACY) {
+      throw new UnsupportedOperationException("this action is not supported in LEGACY mode.");
+    }
+    ShadowPausedLooper.idleAllLoopers();
+  }
+
+  /**
+   * Advances the system clock by the given time, executing the tasks of every looper as they
+   * become due. This replaces loops of {@link #idleFor} calls across several loopers.
+   *
+   * <p>Not supported in {@link LooperMode.Mode#LEGACY} mode.
+   */
+  public static void idleAllLoopersFor(Duration duration) {
+    if (looperMode() == LEGACY) {
+      throw new UnsupportedOperationException("this action is not supported in LEGACY mode.");
+    }
+    ShadowPausedLooper.idleAllLoopersFor(duration.toMillis(), MILLISECONDS);
+  }
+
   public abstract void quitUnchecked();
 
   public abstract boolean hasQuit();
@@ -14,6 +14,8 @@ import android.os.MessageQueue.IdleHandler;
 import android.os.SystemClock;
 import android.util.Log;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -37,6 +39,7 @@ import org.robolectric.annotation.RealObject;
 import org.robolectric.annotation.Resetter;
 import org.robolectric.config.ConfigurationRegistry;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.util.PerfStatsCollector;
 import org.robolectric.util.Scheduler;
 import org.robolectric.util.reflector.Accessor;
 import org.robolectric.util.reflector.Direct;
@@ -69,6 +72,11 @@ public final class ShadowPausedLooper extends ShadowLooper {
 
   private static boolean ignoreUncaughtExceptions = false;
 
+  private static final String TRACE_MESSAGES_PROPERTY = "robolectric.looper.traceMessages";
+
+  @SuppressWarnings("NonFinalStaticField") // Re-read from the system property on reset.
+  private static volatile boolean traceMessages = Boolean.getBoolean(TRACE_MESSAGES_PROPERTY);
+
   @RealObject private Looper realLooper;
   private boolean isPaused = false;
   // the Executor that executes looper messages. Must be written to on looper thread
@@ -104,20 +112,42 @@ public final class ShadowPausedLooper extends ShadowLooper {
     executeOnLooper(new IdlingRunnable());
   }
 
+  /**
+   * Like {@link #idle()}, but doesn't block the calling thread. The returned future completes on
+   * the looper thread once all due messages have executed, or fails with the exception thrown by a
+   * message.
+   *
+   * <p>This lets a thread wait for several loopers to become idle at once without dedicating a
+   * thread to each {@link #idle()} call.
+   *
+   * @throws IllegalStateException if Looper is quitting or has stopped due to uncaught exception
+   */
+  public ListenableFuture<Void> idleAsync() {
+    AsyncIdlingRunnable runnable = new AsyncIdlingRunnable();
+    if (Thread.currentThread() == realLooper.getThread()) {
+      executeOnLooper(runnable);
+    } else {
+      checkState(!shadowQueue().isQuitting(), "Looper is quitting");
+      if (looperMode() == LooperMode.Mode.PAUSED && realLooper.equals(Looper.getMainLooper())) {
+        throw new UnsupportedOperationException(
+            "main looper can only be controlled from main thread");
+      }
+      looperExecutor.execute(runnable);
+    }
+    return runnable.future;
+  }
+
+  /**
+   * Advances the system clock by the given time, executing all messages that become due on this
+   * looper along the way.
+   *
+   * <p>The clock jumps directly from one scheduled message time to the next, and the whole
+   * operation is performed in a single hand-off to the looper thread rather than one per due time.
+   */
   @Override
   public void idleFor(long time, TimeUnit timeUnit) {
     long endingTimeMs = SystemClock.uptimeMillis() + timeUnit.toMillis(time);
-    long nextScheduledTimeMs = getNextScheduledTaskTime().toMillis();
-    while (nextScheduledTimeMs != 0 && nextScheduledTimeMs <= endingTimeMs) {
-      ShadowSystemClock.advanceBy(
-          nextScheduledTimeMs - SystemClock.uptimeMillis(), TimeUnit.MILLISECONDS);
-      idle();
-      nextScheduledTimeMs = getNextScheduledTaskTime().toMillis();
-    }
-    ShadowSystemClock.advanceBy(endingTimeMs - SystemClock.uptimeMillis(), TimeUnit.MILLISECONDS);
-    // the last SystemClock update might have added new tasks to the main looper via Choreographer
-    // so idle once more.
-    idle();
+    executeOnLooper(new IdleForRunnable(endingTimeMs));
   }
 
   @Override
@@ -293,11 +323,73 @@ public final class ShadowPausedLooper extends ShadowLooper {
     return shadowQueue().getLastScheduledTaskTime();
   }
 
+  /**
+   * Executes the due messages of every looper, repeating until all of them are idle, since
+   * handling a message on one looper may post work to another. Only loopers with due messages are
+   * handed work, so idle loopers cost no thread hand-off.
+   */
+  static void idleAllLoopers() {
+    boolean executedAny;
+    do {
+      executedAny = false;
+      for (Looper looper : getLoopers()) {
+        ShadowPausedLooper shadowLooper = Shadow.extract(looper);
+        if (shadowLooper.isActive() && !shadowLooper.shadowQueue().isIdle()) {
+          shadowLooper.idle();
+          executedAny = true;
+        }
+      }
+    } while (executedAny);
+  }
+
+  /**
+   * Advances the system clock by the given time, executing the messages of every looper as they
+   * become due. The clock jumps directly to the earliest scheduled message across all loopers, and
+   * all loopers are idled at each such time before moving on.
+   */
+  static void idleAllLoopersFor(long time, TimeUnit timeUnit) {
+    long endingTimeMs = SystemClock.uptimeMillis() + timeUnit.toMillis(time);
+    idleAllLoopers();
+    long nextScheduledTimeMs = getNextScheduledTaskTimeOfAllLoopers();
+    while (nextScheduledTimeMs != 0 && nextScheduledTimeMs <= endingTimeMs) {
+      ShadowSystemClock.advanceBy(
+          nextScheduledTimeMs - SystemClock.uptimeMillis(), TimeUnit.MILLISECONDS);
+      idleAllLoopers();
+      nextScheduledTimeMs = getNextScheduledTaskTimeOfAllLoopers();
+    }
+    ShadowSystemClock.advanceBy(endingTimeMs - SystemClock.uptimeMillis(), TimeUnit.MILLISECONDS);
+    idleAllLoopers();
+  }
+
+  /** Returns the earliest scheduled message time across all loopers, or 0 if there is none. */
+  private static long getNextScheduledTaskTimeOfAllLoopers() {
+    long next = 0;
+    for (Looper looper : getLoopers()) {
+      ShadowPausedLooper shadowLooper = Shadow.extract(looper);
+      if (!shadowLooper.isActive()) {
+        continue;
+      }
+      long when = shadowLooper.getNextScheduledTaskTime().toMillis();
+      if (when != 0 && (next == 0 || when < next)) {
+        next = when;
+      }
+    }
+    return next;
+  }
+
+  /** Returns true if this looper can still be handed work. */
+  private boolean isActive() {
+    return !shadowQueue().isQuitting()
+        && !shadowQueue().hasUncaughtException()
+        && realLooper.getThread().isAlive();
+  }
+
   @Resetter
   @SuppressWarnings("deprecation") // This is Robolectric library code
   public static synchronized void resetLoopers() {
     // Do not use looperMode() here, because its cached value might already have been reset
     LooperMode.Mode looperMode = ConfigurationRegistry.get(LooperMode.Mode.class);
+    traceMessages = Boolean.getBoolean(TRACE_MESSAGES_PROPERTY);
 
     if (looperMode == LooperMode.Mode.LEGACY) {
       return;
@@ -440,6 +532,46 @@ public final class ShadowPausedLooper extends ShadowLooper {
     looperExecutor = executor;
   }
 
+  /**
+   * Dispatches a message to its target. If the {@code robolectric.looper.traceMessages} system
+   * property is set, the wall-clock time of each message is recorded in {@link PerfStatsCollector}
+   * under a name derived from its target Handler, callback and {@code what}, so the messages that
+   * dominate {@link #idle()} show up in the perf stats reports of each test.
+   */
+  private static void dispatchMessage(Message msg) {
+    if (!traceMessages) {
+      msg.getTarget().dispatchMessage(msg);
+      return;
+    }
+    PerfStatsCollector.getInstance()
+        .measure(messageEventName(msg), () -> msg.getTarget().dispatchMessage(msg));
+  }
+
+  /** Overrides the {@code robolectric.looper.traceMessages} property until the next reset. */
+  @VisibleForTesting
+  static void setTraceMessages(boolean trace) {
+    traceMessages = trace;
+  }
+
+  private static String messageEventName(Message msg) {
+    StringBuilder name =
+        new StringBuilder("ShadowPausedLooper.message:")
+            .append(msg.getTarget().getClass().getName());
+    Runnable callback = msg.getCallback();
+    if (callback != null) {
+      String callbackName = callback.getClass().getName();
+      // Drop the per-run suffix of lambda class names so all instances aggregate together.
+      int lambda = callbackName.indexOf("$$Lambda");
+      if (lambda >= 0) {
+        callbackName = callbackName.substring(0, lambda + "$$Lambda".length());
+      }
+      name.append('/').append(callbackName);
+    } else {
+      name.append(" what=").append(msg.what);
+    }
+    return name.toString();
+  }
+
   /** Retrieves the next message or null if the queue is idle. */
   private Message getNextExecutableMessage() {
     synchronized (realLooper.getQueue()) {
@@ -588,19 +720,81 @@ public final class ShadowPausedLooper extends ShadowLooper {
     }
   }
 
+  /**
+   * Executes all messages that are currently due, running idle handlers as the queue becomes idle.
+   * Must be called on the looper thread.
+   *
+   * @return the number of messages executed
+   */
+  private int executeDueMessages() {
+    int executed = 0;
+    while (true) {
+      Message msg = getNextExecutableMessage();
+      if (msg == null) {
+        return executed;
+      }
+      dispatchMessage(msg);
+      shadowMsg(msg).recycleUnchecked();
+      triggerIdleHandlersIfNeeded(msg);
+      executed++;
+    }
+  }
+
   private class IdlingRunnable extends ControlRunnable {
 
     @Override
     public void doRun() {
-      while (true) {
-        Message msg = getNextExecutableMessage();
-        if (msg == null) {
-          break;
-        }
-        msg.getTarget().dispatchMessage(msg);
-        shadowMsg(msg).recycleUnchecked();
-        triggerIdleHandlersIfNeeded(msg);
+      executeDueMessages();
+    }
+  }
+
+  private class AsyncIdlingRunnable extends ControlRunnable {
+    private final SettableFuture<Void> future = SettableFuture.create();
+
+    @Override
+    public void doRun() {
+      try {
+        executeDueMessages();
+      } catch (RuntimeException e) {
+        future.setException(e);
+        throw e;
+      }
+      future.set(null);
+    }
+  }
+
+  /** Control runnable that performs {@link #idleFor} on the looper thread. */
+  private class IdleForRunnable extends ControlRunnable {
+    private final long endingTimeMs;
+    // Whether idleFor() was called from another thread, i.e. this runnable was handed off to the
+    // looper thread rather than run inline.
+    private final boolean handedOff;
+
+    IdleForRunnable(long endingTimeMs) {
+      this.endingTimeMs = endingTimeMs;
+      this.handedOff = Thread.currentThread() != realLooper.getThread();
+    }
+
+    @Override
+    public void doRun() {
+      int executed = 0;
+      long nextScheduledTimeMs = getNextScheduledTaskTime().toMillis();
+      while (nextScheduledTimeMs != 0 && nextScheduledTimeMs <= endingTimeMs) {
+        ShadowSystemClock.advanceBy(
+            nextScheduledTimeMs - SystemClock.uptimeMillis(), TimeUnit.MILLISECONDS);
+        executed += executeDueMessages();
+        nextScheduledTimeMs = getNextScheduledTaskTime().toMillis();
+      }
+      ShadowSystemClock.advanceBy(endingTimeMs - SystemClock.uptimeMillis(), TimeUnit.MILLISECONDS);
+      // the last SystemClock update might have added new tasks to the main looper via
+      // Choreographer so idle once more.
+      executed += executeDueMessages();
+
+      PerfStatsCollector perfStatsCollector = PerfStatsCollector.getInstance();
+      if (handedOff) {
+        perfStatsCollector.incrementCount("ShadowPausedLooper.idleFor.handoffs");
       }
+      perfStatsCollector.incrementCount("ShadowPausedLooper.idleFor.messagesExecuted", executed);
     }
   }
 
@@ -612,7 +806,7 @@ public final class ShadowPausedLooper extends ShadowLooper {
       Message msg = shadowQueue().getNextIgnoringWhen();
       if (msg != null) {
         SystemClock.setCurrentTimeMillis(shadowMsg(msg).getWhen());
-        msg.getTarget().dispatchMessage(msg);
+        dispatchMessage(msg);
         triggerIdleHandlersIfNeeded(msg);
       }
     }
@@ -639,7 +833,7 @@ public final class ShadowPausedLooper extends ShadowLooper {
         if (msg == null) {
           throw new IllegalStateException("Runnable is not in the queue");
         }
-        msg.getTarget().dispatchMessage(msg);
+        dispatchMessage(msg);
         triggerIdleHandlersIfNeeded(msg);
       } while (msg.getCallback() != runnable);
     }
@@ -663,7 +857,7 @@ public final class ShadowPausedLooper extends ShadowLooper {
         if (msg == null) {
           throw new IllegalStateException("Runnable is not in the queue");
         }
-        msg.getTarget().dispatchMessage(msg);
+        dispatchMessage(msg);
 
       } while (msg.getCallback() != runnable);
     }
@@ -8,7 +8,6 @@ import java.time.DateTimeException;
 import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import javax.annotation.concurrent.GuardedBy;
 import org.robolectric.annotation.HiddenApi;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
@@ -37,13 +36,14 @@ public class ShadowPausedSystemClock extends ShadowSystemClock {
   private static final int MILLIS_PER_MICRO = 1_000;
   private static final long INITIAL_TIME_NS = 100 * MILLIS_PER_NANO;
 
+  // Writes are guarded by ShadowPausedSystemClock.class so that read-modify-write updates don't
+  // race; the fields are volatile so the frequent reads from every looper thread don't need the
+  // lock.
   @SuppressWarnings("NonFinalStaticField")
-  @GuardedBy("ShadowPausedSystemClock.class")
-  private static long currentUptimeNs = INITIAL_TIME_NS;
+  private static volatile long currentUptimeNs = INITIAL_TIME_NS;
 
   @SuppressWarnings("NonFinalStaticField")
-  @GuardedBy("ShadowPausedSystemClock.class")
-  private static long currentRealtimeNs = INITIAL_TIME_NS;
+  private static volatile long currentRealtimeNs = INITIAL_TIME_NS;
 
   private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
   // hopefully temporary list of clock listeners that are NOT cleared between tests
@@ -149,7 +149,7 @@ public class ShadowPausedSystemClock extends ShadowSystemClock {
   }
 
   @Implementation(minSdk = S)
-  protected static synchronized long uptimeNanos() {
+  protected static long uptimeNanos() {
     return currentUptimeNs;
   }
 
@@ -159,7 +159,7 @@ public class ShadowPausedSystemClock extends ShadowSystemClock {
   }
 
   @Implementation
-  protected static synchronized long elapsedRealtimeNanos() {
+  protected static long elapsedRealtimeNanos() {
     return currentRealtimeNs;
   }
 
@@ -21,7 +21,7 @@ public class PerfStatsCollector {
   private final Clock clock;
   private final Map<Class<?>, Object> metadata = new HashMap<>();
   private final Map<MetricKey, Metric> metricMap = new HashMap<>();
-  private boolean enabled = true;
+  private volatile boolean enabled = true;
 
   public PerfStatsCollector() {
     this(System::nanoTime);
@@ -40,6 +40,14 @@ public class PerfStatsCollector {
     this.enabled = isEnabled;
   }
 
+  /**
+   * Returns whether perf stats are being retained. Hot paths can check this to skip recording
+   * counts, which takes a lock, when nobody is going to report them.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
   public Event startEvent(String eventName) {
     return new Event(eventName);
   }
@@ -59,13 +67,21 @@ public class PerfStatsCollector {
   }
 
   public void incrementCount(String eventName) {
+    incrementCount(eventName, 1);
+  }
+
+  /**
+   * Increments the count of the given event by {@code delta}, e.g. for batched work. {@code delta}
+   * must not be negative.
+   */
+  public void incrementCount(String eventName, int delta) {
     synchronized (PerfStatsCollector.this) {
       MetricKey key = new MetricKey(eventName, true);
       Metric metric = metricMap.get(key);
       if (metric == null) {
         metricMap.put(key, metric = new Metric(key.name, key.success));
       }
-      metric.incrementCount();
+      metric.incrementCount(delta);
     }
   }
 
@@ -7,8 +7,8 @@ import static org.robolectric.util.Scheduler.IdleState.UNPAUSED;
 
 import com.google.errorprone.annotations.InlineMe;
 import java.time.Duration;
-import java.util.Iterator;
-import java.util.PriorityQueue;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
 
@@ -64,7 +64,7 @@ public class Scheduler {
 
   private boolean isExecutingRunnable = false;
   private final Thread associatedThread = Thread.currentThread();
-  private final PriorityQueue<ScheduledRunnable> runnables = new PriorityQueue<>();
+  private final ScheduledRunnableQueue runnables = new ScheduledRunnableQueue();
   private volatile IdleState idleState = UNPAUSED;
 
   /**
@@ -194,12 +194,7 @@ public class Scheduler {
    * @param runnable Runnable to remove.
    */
   public synchronized void remove(Runnable runnable) {
-    Iterator<ScheduledRunnable> iterator = runnables.iterator();
-    while (iterator.hasNext()) {
-      if (iterator.next().runnable == runnable) {
-        iterator.remove();
-      }
-    }
+    runnables.removeAll(runnable);
   }
 
   /**
@@ -209,13 +204,7 @@ public class Scheduler {
    * @return True if a runnable was executed.
    */
   public synchronized boolean advanceToLastPostedRunnable() {
-    long currentMaxTime = currentTime;
-    for (ScheduledRunnable scheduled : runnables) {
-      if (currentMaxTime < scheduled.scheduledTime) {
-        currentMaxTime = scheduled.scheduledTime;
-      }
-    }
-    return advanceTo(currentMaxTime);
+    return advanceTo(runnables.maxScheduledTime(currentTime));
   }
 
   /**
@@ -326,13 +315,7 @@ public class Scheduler {
     if (runnables.isEmpty()) {
       return Duration.ZERO;
     }
-    long currentMaxTime = currentTime;
-    for (ScheduledRunnable scheduled : runnables) {
-      if (currentMaxTime < scheduled.scheduledTime) {
-        currentMaxTime = scheduled.scheduledTime;
-      }
-    }
-    return Duration.ofMillis(currentMaxTime);
+    return Duration.ofMillis(runnables.maxScheduledTime(currentTime));
   }
 
   private boolean nextTaskIsScheduledBefore(long endingTime) {
@@ -371,6 +354,11 @@ public class Scheduler {
     private final Runnable runnable;
     private final long scheduledTime;
     private final long timeDisambiguator;
+    // Position in ScheduledRunnableQueue.heap, and the next older and newer queued entries for the
+    // same runnable.
+    private int heapIndex;
+    private ScheduledRunnable nextWithSameRunnable;
+    private ScheduledRunnable previousWithSameRunnable;
 
     private ScheduledRunnable(Runnable runnable, long scheduledTime) {
       this(runnable, scheduledTime, nextTimeDisambiguator++);
@@ -400,4 +388,148 @@ public class Scheduler {
       }
     }
   }
+
+  /**
+   * Binary min-heap of {@link ScheduledRunnable}s that also indexes the entries by runnable
+   * identity, so that {@link #remove(Runnable)} takes O(log n) per removed entry instead of
+   * scanning the whole queue. Handlers remove callbacks far more often than they find them queued.
+   */
+  private static final class ScheduledRunnableQueue {
+    private ScheduledRunnable[] heap = new ScheduledRunnable[16];
+    private int size;
+
+    /** Maps each queued runnable to the most recently added of its entries. */
+    private final IdentityHashMap<Runnable, ScheduledRunnable> entries = new IdentityHashMap<>();
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    int size() {
+      return size;
+    }
+
+    ScheduledRunnable peek() {
+      return size == 0 ? null : heap[0];
+    }
+
+    void add(ScheduledRunnable scheduled) {
+      if (size == heap.length) {
+        heap = Arrays.copyOf(heap, size * 2);
+      }
+      ScheduledRunnable older = entries.put(scheduled.runnable, scheduled);
+      scheduled.nextWithSameRunnable = older;
+      if (older != null) {
+        older.previousWithSameRunnable = scheduled;
+      }
+      heap[size] = scheduled;
+      siftUp(size++);
+    }
+
+    ScheduledRunnable poll() {
+      if (size == 0) {
+        return null;
+      }
+      ScheduledRunnable head = heap[0];
+      unlink(head);
+      removeAt(0);
+      return head;
+    }
+
+    void removeAll(Runnable runnable) {
+      ScheduledRunnable scheduled = entries.remove(runnable);
+      while (scheduled != null) {
+        removeAt(scheduled.heapIndex);
+        ScheduledRunnable next = scheduled.nextWithSameRunnable;
+        scheduled.nextWithSameRunnable = null;
+        scheduled.previousWithSameRunnable = null;
+        scheduled = next;
+      }
+    }
+
+    /** Returns the latest scheduled time in the queue, or {@code floor} if that is later. */
+    long maxScheduledTime(long floor) {
+      long max = floor;
+      for (int i = 0; i < size; i++) {
+        max = Math.max(max, heap[i].scheduledTime);
+      }
+      return max;
+    }
+
+    void clear() {
+      Arrays.fill(heap, 0, size, null);
+      size = 0;
+      entries.clear();
+    }
+
+    private void unlink(ScheduledRunnable scheduled) {
+      ScheduledRunnable newer = scheduled.previousWithSameRunnable;
+      ScheduledRunnable older = scheduled.nextWithSameRunnable;
+      if (newer == null) {
+        if (older == null) {
+          entries.remove(scheduled.runnable);
+        } else {
+          entries.put(scheduled.runnable, older);
+        }
+      } else {
+        newer.nextWithSameRunnable = older;
+      }
+      if (older != null) {
+        older.previousWithSameRunnable = newer;
+      }
+      scheduled.nextWithSameRunnable = null;
+      scheduled.previousWithSameRunnable = null;
+    }
+
+    private void removeAt(int index) {
+      ScheduledRunnable last = heap[--size];
+      heap[size] = null;
+      if (index != size) {
+        heap[index] = last;
+        siftDown(index);
+        if (heap[index] == last) {
+          siftUp(index);
+        }
+      }
+    }
+
+    private void siftUp(int index) {
+      ScheduledRunnable scheduled = heap[index];
+      while (index > 0) {
+        int parentIndex = (index - 1) >>> 1;
+        ScheduledRunnable parent = heap[parentIndex];
+        if (scheduled.compareTo(parent) >= 0) {
+          break;
+        }
+        place(parent, index);
+        index = parentIndex;
+      }
+      place(scheduled, index);
+    }
+
+    private void siftDown(int index) {
+      ScheduledRunnable scheduled = heap[index];
+      int firstLeaf = size >>> 1;
+      while (index < firstLeaf) {
+        int childIndex = 2 * index + 1;
+        ScheduledRunnable child = heap[childIndex];
+        int rightIndex = childIndex + 1;
+        if (rightIndex < size && heap[rightIndex].compareTo(child) < 0) {
+          childIndex = rightIndex;
+          child = heap[rightIndex];
+        }
+        if (scheduled.compareTo(child) <= 0) {
+          break;
+        }
+        place(child, index);
+        index = childIndex;
+      }
+      place(scheduled, index);
+    }
+
+    private void place(ScheduledRunnable scheduled, int index) {
+      heap[index] = scheduled;
+      scheduled.heapIndex = index;
+    }
+  }
 }
@@ -2,6 +2,9 @@ package org.robolectric.util.inject;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AnnotatedType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
@@ -20,8 +23,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.GuardedBy;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
@@ -100,8 +104,19 @@ public class Injector {
   private final Injector superInjector;
   private final PluginFinder pluginFinder;
 
-  @GuardedBy("this")
-  private final Map<Key<?>, Provider<?>> providers;
+  /**
+   * Cached construction plans, one per implementing class. Stored in a {@link ClassValue} so that
+   * plans for classes loaded by sandbox class loaders go away with those class loaders.
+   */
+  private static final ClassValue<ConstructionPlan> constructionPlans =
+      new ClassValue<ConstructionPlan>() {
+        @Override
+        protected ConstructionPlan computeValue(Class<?> implementingClass) {
+          return new ConstructionPlan(implementingClass);
+        }
+      };
+
+  private final ConcurrentMap<Key<?>, Provider<?>> providers;
 
   private final Map<Key<?>, Class<?>> defaultImpls;
 
@@ -125,7 +140,7 @@ public class Injector {
       PluginFinder pluginFinder) {
     this.superInjector = superInjector;
 
-    this.providers = new HashMap<>(providers);
+    this.providers = new ConcurrentHashMap<>(providers);
     for (Map.Entry<Key<?>, Class<?>> e : explicitImpls.entrySet()) {
       this.providers.put(e.getKey(), memoized(() -> inject(e.getValue())));
     }
@@ -245,34 +260,28 @@ public class Injector {
   }
 
   @Nonnull
+  @SuppressWarnings("unchecked")
   private <T> T inject(@Nonnull Class<? extends T> implementingClass) {
-    Constructor<T> ctor;
+    ConstructionPlan plan;
     try {
-      ctor = findConstructor(implementingClass);
+      plan = constructionPlans.get(implementingClass);
     } catch (IllegalArgumentException e) {
       throw new InjectionException(implementingClass, e);
     }
 
-    Object[] params = resolveDependencies(ctor);
-    try {
-      return ctor.newInstance(params);
-    } catch (IllegalAccessException e) {
-      throw Util.sneakyThrow(e);
-    } catch (InstantiationException | InvocationTargetException e) {
-      throw Util.sneakyThrow(e.getCause());
-    }
+    Object[] params = resolveDependencies(plan);
+    return (T) plan.newInstance(params);
   }
 
-  @SuppressWarnings("unchecked")
-  private <T> Constructor<T> findConstructor(@Nonnull Class<? extends T> implementingClass) {
-    List<Constructor<T>> injectCtors = new ArrayList<>();
-    List<Constructor<T>> otherCtors = new ArrayList<>();
+  private static Constructor<?> findConstructor(@Nonnull Class<?> implementingClass) {
+    List<Constructor<?>> injectCtors = new ArrayList<>();
+    List<Constructor<?>> otherCtors = new ArrayList<>();
 
     for (Constructor<?> ctor : implementingClass.getConstructors()) {
       if (ctor.isAnnotationPresent(Inject.class)) {
-        injectCtors.add((Constructor<T>) ctor);
+        injectCtors.add(ctor);
       } else {
-        otherCtors.add((Constructor<T>) ctor);
+        otherCtors.add(ctor);
       }
     }
 
@@ -289,29 +298,36 @@ public class Injector {
     }
   }
 
-  private Object[] resolveDependencies(Executable ctor) {
-    final Object[] params = new Object[ctor.getParameterCount()];
+  private Object[] resolveDependencies(ConstructionPlan plan) {
+    Key<?>[] paramKeys = plan.paramKeys;
+    final Object[] params = new Object[paramKeys.length];
 
-    AnnotatedType[] paramTypes = ctor.getAnnotatedParameterTypes();
-    Annotation[][] parameterAnnotations = ctor.getParameterAnnotations();
-    for (int i = 0; i < paramTypes.length; i++) {
-      AnnotatedType paramType = paramTypes[i];
-      String name = findName(parameterAnnotations[i]);
-      Key<?> key = new Key<>(paramType.getType(), name);
+    for (int i = 0; i < paramKeys.length; i++) {
+      Key<?> key = paramKeys[i];
       if (key.equals(INJECTOR_KEY)) {
         params[i] = this;
       } else {
         try {
           params[i] = getInstanceInternal(key);
         } catch (UnsatisfiedDependencyException e) {
-          throw new UnsatisfiedDependencyException(new Key<>(ctor.getDeclaringClass()), e);
+          throw new UnsatisfiedDependencyException(new Key<>(plan.implementingClass), e);
         }
       }
     }
     return params;
   }
 
-  private String findName(Annotation[] annotations) {
+  private static Key<?>[] paramKeys(Executable ctor) {
+    AnnotatedType[] paramTypes = ctor.getAnnotatedParameterTypes();
+    Annotation[][] parameterAnnotations = ctor.getParameterAnnotations();
+    Key<?>[] keys = new Key<?>[paramTypes.length];
+    for (int i = 0; i < paramTypes.length; i++) {
+      keys[i] = new Key<>(paramTypes[i].getType(), findName(parameterAnnotations[i]));
+    }
+    return keys;
+  }
+
+  private static String findName(Annotation[] annotations) {
     for (Annotation annotation : annotations) {
       if (annotation instanceof Named) {
         return ((Named) annotation).value();
@@ -323,12 +339,18 @@ public class Injector {
   /**
    * Finds a provider for the given key.
    *
-   * <p>Calls are guaranteed idempotent and non-blocking.
+   * <p>Calls are guaranteed idempotent and non-blocking. Lookups of previously-gotten providers
+   * don't take any lock.
    */
   @SuppressWarnings("unchecked")
   @Nonnull
-  private synchronized <T> Provider<T> getProvider(final Key<T> key) {
+  private <T> Provider<T> getProvider(final Key<T> key) {
     // Previously-gotten providers (including those from subinjectors) will already be present.
+    Provider<?> provider = providers.get(key);
+    if (provider != null) {
+      return (Provider<T>) provider;
+    }
+
     return (Provider<T>)
         providers.computeIfAbsent(
             key,
@@ -494,19 +516,78 @@ public class Injector {
   private static class MemoizingProvider<T> implements Provider<T> {
 
     private Provider<T> delegate;
-    private T instance;
+    private volatile T instance;
 
     private MemoizingProvider(Provider<T> delegate) {
       this.delegate = delegate;
     }
 
     @Override
-    public synchronized T get() {
-      if (instance == null) {
-        instance = delegate.get();
-        delegate = null;
+    public T get() {
+      T result = instance;
+      if (result != null) {
+        return result;
+      }
+      synchronized (this) {
+        if (instance == null) {
+          instance = delegate.get();
+          delegate = null;
+        }
+        return instance;
+      }
+    }
+  }
+
+  /**
+   * How to instantiate an implementing class: its injection constructor as a {@link MethodHandle}
+   * of type {@code (Object[])Object}, and the keys of the constructor's parameters.
+   */
+  private static class ConstructionPlan {
+    private static final MethodType INVOKER_TYPE =
+        MethodType.methodType(Object.class, Object[].class);
+
+    private final Class<?> implementingClass;
+    private final Constructor<?> ctor;
+    private final Key<?>[] paramKeys;
+    // null if the constructor isn't accessible through a method handle.
+    private final MethodHandle invoker;
+
+    ConstructionPlan(Class<?> implementingClass) {
+      this.implementingClass = implementingClass;
+      this.ctor = findConstructor(implementingClass);
+      this.paramKeys = paramKeys(ctor);
+      this.invoker = invoker(ctor);
+    }
+
+    private static MethodHandle invoker(Constructor<?> ctor) {
+      if (Modifier.isAbstract(ctor.getDeclaringClass().getModifiers())) {
+        return null;
+      }
+      try {
+        return MethodHandles.lookup()
+            .unreflectConstructor(ctor)
+            .asSpreader(Object[].class, ctor.getParameterCount())
+            .asType(INVOKER_TYPE);
+      } catch (IllegalAccessException e) {
+        return null;
+      }
+    }
+
+    Object newInstance(Object[] params) {
+      if (invoker == null) {
+        try {
+          return ctor.newInstance(params);
+        } catch (IllegalAccessException e) {
+          throw Util.sneakyThrow(e);
+        } catch (InstantiationException | InvocationTargetException e) {
+          throw Util.sneakyThrow(e.getCause());
+        }
+      }
+      try {
+        return (Object) invoker.invokeExact(params);
+      } catch (Throwable t) {
+        throw Util.sneakyThrow(t);
       }
-      return instance;
     }
   }
 
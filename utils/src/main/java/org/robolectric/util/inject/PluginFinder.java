@@ -9,13 +9,17 @@ import java.io.InputStreamReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.ServiceConfigurationError;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
@@ -117,6 +121,17 @@ class PluginFinder {
 
   static class ServiceFinderAdapter {
 
+    /**
+     * Names of the plugin classes found for each plugin type, per class loader.
+     *
+     * <p>The classpath doesn't change during a run, so scanning it for provider-configuration files
+     * only needs to happen once per class loader rather than every time a runner or sandbox builds
+     * an injector. Class names rather than classes are kept so that the cache doesn't hold
+     * references to the class loaders which are its keys.
+     */
+    private static final Map<ClassLoader, Map<String, List<String>>> pluginNamesCache =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
     private final ClassLoader classLoader;
 
     ServiceFinderAdapter(ClassLoader classLoader) {
@@ -136,33 +151,58 @@ class PluginFinder {
                 HashSet<Class<? extends T>> result = new HashSet<>();
 
                 try {
-                  Enumeration<URL> urls =
-                      serviceClassLoader.getResources("META-INF/services/" + pluginType.getName());
-                  while (urls.hasMoreElements()) {
-                    URL url = urls.nextElement();
-                    BufferedReader reader =
-                        new BufferedReader(
-                            new InputStreamReader(url.openStream(), StandardCharsets.UTF_8));
-                    while (reader.ready()) {
-                      String s = reader.readLine();
-                      int startPositionOfComment = s.indexOf('#');
-                      if (startPositionOfComment != -1) {
-                        s = s.substring(0, startPositionOfComment);
-                      }
-                      s = s.trim();
-                      if (!s.isBlank()) {
-                        result.add(
-                            Class.forName(s, false, serviceClassLoader).asSubclass(pluginType));
-                      }
-                    }
-                    reader.close();
+                  for (String className : findPluginNames(serviceClassLoader, pluginType)) {
+                    result.add(
+                        Class.forName(className, false, serviceClassLoader)
+                            .asSubclass(pluginType));
                   }
                   return result;
-                } catch (IOException | ClassNotFoundException e) {
+                } catch (ClassNotFoundException e) {
                   throw new AssertionError(e);
                 }
               });
     }
+
+    private static List<String> findPluginNames(
+        ClassLoader serviceClassLoader, Class<?> pluginType) {
+      Map<String, List<String>> namesByType =
+          pluginNamesCache.computeIfAbsent(serviceClassLoader, k -> new ConcurrentHashMap<>());
+      List<String> names = namesByType.get(pluginType.getName());
+      if (names == null) {
+        names = readPluginNames(serviceClassLoader, pluginType);
+        namesByType.putIfAbsent(pluginType.getName(), names);
+      }
+      return names;
+    }
+
+    private static List<String> readPluginNames(
+        ClassLoader serviceClassLoader, Class<?> pluginType) {
+      List<String> names = new ArrayList<>();
+      try {
+        Enumeration<URL> urls =
+            serviceClassLoader.getResources("META-INF/services/" + pluginType.getName());
+        while (urls.hasMoreElements()) {
+          URL url = urls.nextElement();
+          BufferedReader reader =
+              new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8));
+          while (reader.ready()) {
+            String s = reader.readLine();
+            int startPositionOfComment = s.indexOf('#');
+            if (startPositionOfComment != -1) {
+              s = s.substring(0, startPositionOfComment);
+            }
+            s = s.trim();
+            if (!s.isBlank() && !names.contains(s)) {
+              names.add(s);
+            }
+          }
+          reader.close();
+        }
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+      return Collections.unmodifiableList(names);
+    }
   }
 
   @Nonnull
@@ -221,6 +221,23 @@ class SchedulerTest {
     assertThat(runnable.wasRun).isFalse()
   }
 
+  @Test
+  fun remove_keepsOrderOfRemainingRunnables() {
+    val runnable = AddToTranscript("removed")
+    scheduler.postDelayed(AddToTranscript("one"), 10)
+    scheduler.postDelayed(runnable, 5)
+    scheduler.postDelayed(AddToTranscript("two"), 10)
+    scheduler.post(runnable)
+    scheduler.postDelayed(AddToTranscript("three"), 20)
+    scheduler.postDelayed(runnable, 15)
+    scheduler.remove(runnable)
+    scheduler.remove(AddToTranscript("not queued"))
+
+    assertThat(scheduler.size()).isEqualTo(3)
+    scheduler.advanceToLastPostedRunnable()
+    assertThat(transcript).containsExactly("one", "two", "three").inOrder()
+  }
+
   @Test
   @Throws(Exception::class)
   fun reset_shouldUnPause() {
@@ -406,6 +423,22 @@ class SchedulerTest {
     assertThat(watch.elapsed().toMillis()).isLessThan(2000L)
   }
 
+  /** Tests for quadratic behavior when the same runnable is queued many times. */
+  @Test
+  fun schedulerWithManyPostsOfSameRunnable() {
+    val watch = Stopwatch.createStarted()
+    var runCount = 0
+    val runnable = Runnable { runCount++ }
+    for (i in 0..49999) {
+      scheduler.postDelayed(runnable, (i % 10).toLong())
+    }
+    scheduler.advanceToLastPostedRunnable()
+    assertThat(runCount).isEqualTo(50000)
+    assertThat(scheduler.size()).isEqualTo(0)
+    watch.stop()
+    assertThat(watch.elapsed().toMillis()).isLessThan(2000L)
+  }
+
   @Test(timeout = 1000)
   @Throws(InterruptedException::class)
   fun schedulerAllowsConcurrentTimeRead_whileLockIsHeld() {